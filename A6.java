@@ -1,12 +1,21 @@
 
 package diver;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
-import graph.Edge;
+import graph.ContractionHierarchy;
+import graph.CsrGraph;
+import graph.IntNodeMap;
 import graph.Node;
+import graph.NodeBitSet;
+import graph.Path;
+import graph.PQueue;
+import graph.QueueKind;
 
 /**
 * Author: Arushi Nety
@@ -15,96 +24,453 @@ import graph.Node;
 /** This class contains the solution to A6, shortest-path algorithm, <br>
  * and other methods needed for diver. */
 public class A6 {
-    
+
+    /** The kind of frontier queue shortestPath(Node, Node) uses. */
+    private static volatile QueueKind queueKind= QueueKind.BUCKETS;
+
+    /** Make shortestPath(Node, Node) use frontier queues of kind k. */
+    public static void setQueueKind(QueueKind k) {
+        queueKind= k;
+    }
+
+    /** Return the kind of frontier queue shortestPath(Node, Node) uses. */
+    public static QueueKind queueKind() {
+        return queueKind;
+    }
+
+    /** The cache shortestPath(Node, Node), distances(Node) and distancesTo(Node) <br>
+     * consult first (null if none). */
+    private static volatile PathCache pathCache;
+
+    /** Make shortestPath(Node, Node), distances(Node) and distancesTo(Node) look up <br>
+     * and store their results in cache c; null turns caching off. */
+    public static void setPathCache(PathCache c) {
+        pathCache= c;
+    }
+
+    /** Return the cache in use (null if none). */
+    public static PathCache pathCache() {
+        return pathCache;
+    }
+
+    /** The number of nodes settled (polled from a frontier) by all searches so far. */
+    private static final LongAdder expansions= new LongAdder();
+
+    /** Return the number of nodes settled by all searches since the last <br>
+     * resetExpansions(). Comparing it across engines shows how much each one explores. */
+    public static long expansions() {
+        return expansions.sum();
+    }
+
+    /** Set the count of settled nodes to 0. */
+    public static void resetExpansions() {
+        expansions.reset();
+    }
+
+    /** An implementation gives a lower bound on the length of a shortest path between <br>
+     * two nodes, for A* search. It must never overestimate, and it must be consistent: <br>
+     * for every edge (v, w), estimate(v, t) <= length(v, w) + estimate(w, t). <br>
+     * For bucket queues, it also must not grow by more than the least edge length <br>
+     * along an edge. */
+    @FunctionalInterface
+    public interface Heuristic {
+        /** Return a lower bound on the length of a shortest path from the node with <br>
+         * index v to the node with index t of g. */
+        int estimate(CsrGraph g, int v, int t);
+
+        /** The heuristic that estimates 0 everywhere: A* with it is Dijkstra. */
+        Heuristic ZERO= (g, v, t) -> 0;
+
+        /** The grid (Manhattan) distance between the tiles of v and t times the least <br>
+         * edge length of g. Every edge joins grid neighbors, so this is consistent. */
+        Heuristic MANHATTAN= (g, v, t) -> g.minWeight() *
+            (Math.abs(g.row(v) - g.row(t)) + Math.abs(g.column(v) - g.column(t)));
+    }
+
     /** Return the shortest path from node v to node last <br>
      * ---or the empty list if a path does not exist. <br>
      * Note: The empty list is a list with 0 elements. */
     public static List<Node> shortestPath(Node v, Node last) {
+        PathCache c= pathCache;
+        CsrGraph g= v.csr();
+        if (c == null || g == null || g.indexOf(last) < 0) return shortestPath(v, last, queueKind);
+        Path p= c.path(g, v.index(), last.index());
+        if (p == null) {
+            p= (Path) shortestPath(v, last, queueKind);
+            c.putPath(g, v.index(), last.index(), p);
+        }
+        return p;
+    }
+
+    /** Return the shortest path from node v to node last, using a frontier queue <br>
+     * of kind kind ---or the empty list if a path does not exist. */
+    public static List<Node> shortestPath(Node v, Node last, QueueKind kind) {
+        // the graph is walked through its CSR view; only a wall has none, and it has no exits
+        CsrGraph g= v.csr();
+        if (g == null) {
+            List<Node> path= new LinkedList<>();
+            if (v == last) path.add(v);
+            return path;
+        }
+
         // Contains an entry for each node in the frontier set. The priority of a node
         // is the length of the shortest known path from v to the node using only settled
-        // node except for the last node, which is in F
-        Heap<Node> F= new Heap<>(true);
-        F.add(v, 0); // adds first node to frontier set; F = {v}; maintains invariant
+        // node except for the last node, which is in F. Nodes are kept by index.
+        PQueue F= kind.create(g);
+        F.add(v.index(), 0); // adds first node to frontier set; F = {v}; maintains invariant
+        int lastIndex= g.indexOf(last);
 
-        // contains both settled nodes and frontier nodes
-        HashMap<Node, NodeData> SandF= new HashMap<>();
-        NodeData vd= new NodeData(null, 0);
+        // contains both settled nodes and frontier nodes: the distance of each from v
+        // and its backpointer, the index of the previous node on a shortest known path
+        IntNodeMap dist= new IntNodeMap(g, Integer.MAX_VALUE);
+        IntNodeMap bkptr= new IntNodeMap(g, -1);
 
-        SandF.put(v, vd);
-        //just adding a comment to see if github works
-        while (F.size != 0) {
+        dist.put(v, 0);
+        int settled= 0;
+        while (!F.isEmpty()) {
             // f = node in F with minimum d value
-            Node f= F.poll();
+            int fi= F.poll();
+            settled++ ;
             // return once last node is reached
-            if (f == last) { return path(SandF, last); }
+            if (fi == lastIndex) {
+                expansions.add(settled);
+                return path(g, bkptr, last);
+            }
+
+            int fDist= dist.get(fi);
+
+            for (int e= g.firstExit(fi); e < g.endExit(fi); e++ ) { // each neighbor of w of f
+                int wi= g.target(e);
+                int len= fDist + g.weight(e); // distance from starting node -> f -> w
 
-            int fDist= SandF.get(f).dist;
+                // w is new (dist absent = MAX_VALUE) or len is shorter: record it and add w
+                // to F or lower its priority. Settled nodes never get a shorter len.
+                if (len < dist.get(wi)) {
+                    dist.put(wi, len);
+                    bkptr.put(wi, fi);
+                    F.insertOrDecrease(wi, len);
+                }
+            }
 
-            for (Edge ed : f.getExits()) { // each neighbor of w of f
-                Node w= ed.getOther(f);
-                int len= fDist + ed.length; // distance from starting node -> f -> w
-                NodeData wnd= SandF.get(w);
+        }
+        expansions.add(settled);
+        // no path from v to last
+        return Path.empty(g);
+    }
 
-                if (wnd == null) {
-                    // add w to F
-                    F.add(w, len);
-                    SandF.put(w, new NodeData(f, len));
+    /** Return a shortest path from node v to node last ---or the empty list if a path <br>
+     * does not exist--- found by A* search guided by heuristic h. */
+    public static List<Node> shortestPathAStar(Node v, Node last, Heuristic h) {
+        return shortestPathAStar(v, last, h, queueKind);
+    }
+
+    /** Return a shortest path from node v to node last ---or the empty list if a path <br>
+     * does not exist--- found by A* search guided by heuristic h, with a frontier <br>
+     * queue of kind kind. <br>
+     * A* is Dijkstra with priority (distance from v) + h(node, last), so it settles <br>
+     * nodes that head toward last first. h is consistent, so no node is settled twice. */
+    public static List<Node> shortestPathAStar(Node v, Node last, Heuristic h,
+        QueueKind kind) {
+        CsrGraph g= v.csr();
+        int lastIndex= g == null ? -1 : g.indexOf(last);
+        if (lastIndex < 0) {
+            // last is a wall or in another graph: the only path there could be is [v]
+            List<Node> path= new LinkedList<>();
+            if (v == last) path.add(v);
+            return path;
+        }
 
-                } else if (len < wnd.dist) {
-                    wnd.bkptr= f;
-                    wnd.dist= len; // set to smallest of the two; in this case, that's 'len'
+        // A relaxation raises a priority by at most the edge length plus the drop of h
+        // along the edge, which for MANHATTAN is at most the least edge length.
+        PQueue F= kind.create(g, g.maxWeight() + g.minWeight());
+        IntNodeMap dist= new IntNodeMap(g, Integer.MAX_VALUE);
+        IntNodeMap bkptr= new IntNodeMap(g, -1);
+        dist.put(v, 0);
+        F.add(v.index(), h.estimate(g, v.index(), lastIndex));
 
-                    // change priority to update heap
-                    F.changePriority(w, len);
+        int settled= 0;
+        while (!F.isEmpty()) {
+            int fi= F.poll();
+            settled++ ;
+            if (fi == lastIndex) {
+                expansions.add(settled);
+                return path(g, bkptr, last);
+            }
+
+            int fDist= dist.get(fi);
+            for (int e= g.firstExit(fi); e < g.endExit(fi); e++ ) {
+                int wi= g.target(e);
+                int len= fDist + g.weight(e);
+                if (len < dist.get(wi)) {
+                    dist.put(wi, len);
+                    bkptr.put(wi, fi);
+                    F.insertOrDecrease(wi, len + h.estimate(g, wi, lastIndex));
                 }
+            }
+        }
+        expansions.add(settled);
+        return Path.empty(g);
+    }
+
+    /** Return a shortest path from node v to node last ---or the empty list if a path <br>
+     * does not exist--- found by bidirectional Dijkstra. */
+    public static List<Node> shortestPathBidirectional(Node v, Node last) {
+        return shortestPathBidirectional(v, last, queueKind);
+    }
+
+    /** Return a shortest path from node v to node last ---or the empty list if a path <br>
+     * does not exist--- found by bidirectional Dijkstra with frontier queues of kind kind. <br>
+     * One search grows from v over g, the other from last over g.reverse(); each step <br>
+     * settles a node on the side with the smaller frontier, which in a maze keeps the <br>
+     * two searches about the same size. Whenever an edge joins the two searches, the <br>
+     * path through it is a candidate, and the shortest candidate, of length mu, is kept. <br>
+     * Once the two frontier minimums sum to at least mu, no path through an unsettled <br>
+     * node can be shorter, so the best candidate is a shortest path. */
+    public static List<Node> shortestPathBidirectional(Node v, Node last, QueueKind kind) {
+        CsrGraph g= v.csr();
+        int lastIndex= g == null ? -1 : g.indexOf(last);
+        if (lastIndex < 0 || v == last) {
+            // last is a wall, in another graph, or v: the only path there could be is [v]
+            List<Node> path= new LinkedList<>();
+            if (v == last) path.add(v);
+            return path;
+        }
+        CsrGraph rev= g.reverse();
+
+        // forward search: distF from v and bkptrF (previous node on a path from v);
+        // backward search: distB to last and nextB (next node on a path to last)
+        PQueue F= kind.create(g);
+        PQueue B= kind.create(rev);
+        IntNodeMap distF= new IntNodeMap(g, Integer.MAX_VALUE);
+        IntNodeMap distB= new IntNodeMap(g, Integer.MAX_VALUE);
+        IntNodeMap bkptrF= new IntNodeMap(g, -1);
+        IntNodeMap nextB= new IntNodeMap(g, -1);
+        distF.put(v.index(), 0);
+        distB.put(lastIndex, 0);
+        F.add(v.index(), 0);
+        B.add(lastIndex, 0);
 
+        // mu is the length of the best path found so far, which uses edge (meetF, meetB)
+        long mu= Long.MAX_VALUE;
+        int meetF= -1;
+        int meetB= -1;
+        int settled= 0;
+        while (!F.isEmpty() && !B.isEmpty()) {
+            int topF= distF.get(F.peek());
+            int topB= distB.get(B.peek());
+            if ((long) topF + topB >= mu) break;
+
+            if (F.size() <= B.size()) {
+                int fi= F.poll();
+                settled++ ;
+                for (int e= g.firstExit(fi); e < g.endExit(fi); e++ ) {
+                    int wi= g.target(e);
+                    int len= topF + g.weight(e);
+                    if (len < distF.get(wi)) {
+                        distF.put(wi, len);
+                        bkptrF.put(wi, fi);
+                        F.insertOrDecrease(wi, len);
+                    }
+                    int db= distB.get(wi);
+                    if (db != Integer.MAX_VALUE && (long) topF + g.weight(e) + db < mu) {
+                        mu= (long) topF + g.weight(e) + db;
+                        meetF= fi;
+                        meetB= wi;
+                    }
+                }
+            } else {
+                int bi= B.poll();
+                settled++ ;
+                for (int e= rev.firstExit(bi); e < rev.endExit(bi); e++ ) {
+                    int wi= rev.target(e); // (wi, bi) is an edge of g
+                    int len= topB + rev.weight(e);
+                    if (len < distB.get(wi)) {
+                        distB.put(wi, len);
+                        nextB.put(wi, bi);
+                        B.insertOrDecrease(wi, len);
+                    }
+                    int df= distF.get(wi);
+                    if (df != Integer.MAX_VALUE && (long) df + rev.weight(e) + topB < mu) {
+                        mu= (long) df + rev.weight(e) + topB;
+                        meetF= wi;
+                        meetB= bi;
+                    }
+                }
             }
+        }
+        expansions.add(settled);
+        if (meetF == -1) return Path.empty(g);
 
+        // stitch: v ... meetF from the forward backpointers, then meetB ... last
+        int kF= 0;
+        for (int p= meetF; p != -1; p= bkptrF.get(p)) kF++ ;
+        int kB= 0;
+        for (int p= meetB; p != -1; p= nextB.get(p)) kB++ ;
+        int[] nodes= new int[kF + kB];
+        int i= kF;
+        for (int p= meetF; p != -1; p= bkptrF.get(p)) nodes[--i]= p;
+        i= kF;
+        for (int p= meetB; p != -1; p= nextB.get(p)) nodes[i++ ]= p;
+        return new Path(g, nodes);
+    }
+
+    /** Return a shortest path from node v to node last ---or the empty list if a path <br>
+     * does not exist--- answered by contraction hierarchy ch, with its shortcuts <br>
+     * unpacked. Build ch once per sewer (it takes a while) and ask it many questions. <br>
+     * Precondition: ch is a hierarchy of v's graph. */
+    public static List<Node> shortestPath(ContractionHierarchy ch, Node v, Node last) {
+        CsrGraph g= ch.graph();
+        int lastIndex= g.indexOf(last);
+        if (lastIndex < 0 || g.indexOf(v) < 0) {
+            List<Node> path= new LinkedList<>();
+            if (v == last) path.add(v);
+            return path;
         }
-        // no path from v to last
-        return new LinkedList<>();
+        int[] p= ch.path(v.index(), lastIndex);
+        return p == null ? Path.empty(g) : new Path(g, p);
     }
 
-   
-    /** An instance contains information about a node: <br>
-     * the Distance of this node from the start node and <br>
-     * its Backpointer: the previous node on a shortest path <br>
-     * from the first node to this node (null for the start node). 
-     * (Not written by Arushi)
-     */
-    public static class NodeData {
-        /** shortest known distance from the start node to this one. */
-        private int dist;
-        /** backpointer on path (with shortest known distance) from start node to this one */
-        private Node bkptr;
-
-        /** Constructor: an instance with dist d from the start node and<br>
-         * backpointer p. */
-        private NodeData(Node p, int d) {
-            dist= d;     // Distance from start node to this one.
-            bkptr= p;    // Backpointer on the path (null if start node)
+    /** Return the shortest-path tree of one Dijkstra from node source that stops as <br>
+     * soon as every node of targets is settled (or every node reachable from source, <br>
+     * if some targets are not). Throw an IllegalArgumentException if source is a wall. */
+    public static ShortestPathTree shortestPathsTo(Node source, Collection<Node> targets) {
+        return shortestPathsTo(source, targets, Integer.MAX_VALUE);
+    }
+
+    /** Return the shortest-path tree of one Dijkstra from node source that stops as <br>
+     * soon as the k nodes of targets nearest to source are settled (all of them if <br>
+     * there are fewer than k, or every node reachable from source if some targets <br>
+     * are not). Targets that are walls or not in source's graph are ignored. <br>
+     * Throw an IllegalArgumentException if source is a wall. */
+    public static ShortestPathTree shortestPathsTo(Node source, Collection<Node> targets, int k) {
+        CsrGraph g= source.csr();
+        if (g == null) throw new IllegalArgumentException("shortestPathsTo: a wall has no graph");
+        NodeBitSet isTarget= new NodeBitSet(g);
+        int want= 0;
+        for (Node t : targets) {
+            int i= g.indexOf(t);
+            if (i >= 0 && isTarget.add(i)) want++ ;
+        }
+        want= Math.min(want, k);
+
+        int[] dist= new int[g.size()];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        int[] parent= new int[g.size()];
+        int[] coins= new int[g.size()];
+        NodeBitSet settled= new NodeBitSet(g);
+        List<Node> found= new ArrayList<>();
+        PQueue F= queueKind.create(g);
+        dist[source.index()]= 0;
+        parent[source.index()]= -1;
+        F.add(source.index(), 0);
+
+        // invariant: dist and parent are as in shortestPath for the settled and frontier
+        // nodes; coins[i] is the value of the coins on the path to settled node i; found
+        // holds the settled targets in the order they were settled
+        int count= 0;
+        while (found.size() < want && !F.isEmpty()) {
+            int fi= F.poll();
+            count++ ;
+            settled.add(fi);
+            // fi's parent is settled already, so the coins up to it are known
+            coins[fi]= (parent[fi] == -1 ? 0 : coins[parent[fi]]) + g.node(fi).getTile().coins();
+            if (isTarget.contains(fi)) found.add(g.node(fi));
+            int fDist= dist[fi];
+            for (int e= g.firstExit(fi); e < g.endExit(fi); e++ ) {
+                int wi= g.target(e);
+                int len= fDist + g.weight(e);
+                if (len < dist[wi]) {
+                    dist[wi]= len;
+                    parent[wi]= fi;
+                    F.insertOrDecrease(wi, len);
+                }
+            }
+        }
+        expansions.add(count);
+        return new ShortestPathTree(g, source, dist, parent, coins, settled, found);
+    }
+
+    /** Return the distance field of node v: element i is the length of a shortest path <br>
+     * from v to the node with index i of v.csr() (Integer.MAX_VALUE if there is none). <br>
+     * Throw an IllegalArgumentException if v is a wall. */
+    public static int[] distances(Node v) {
+        PathCache c= pathCache;
+        if (c == null || v.csr() == null) return distances(v, queueKind);
+        long key= PathCache.key(v.index(), -1);
+        int[] f= c.field(v.csr(), key);
+        if (f == null) {
+            f= distances(v, queueKind);
+            c.putField(v.csr(), key, f);
         }
+        // the cache keeps its own copy: the caller may change this one
+        return f.clone();
+    }
+
+    /** Return the distance field of node v (see distances(Node)), computed by Dijkstra's <br>
+     * algorithm over the whole graph with a frontier queue of kind kind. */
+    public static int[] distances(Node v, QueueKind kind) {
+        CsrGraph g= v.csr();
+        if (g == null) throw new IllegalArgumentException("distances: a wall has no graph");
+        return distances(g, v.index(), kind);
+    }
 
-        /** return a representation of this instance. */
-        @Override
-        public String toString() {
-            return "dist " + dist + ", bckptr " + bkptr;
+    /** Return the reverse distance field of node v: element i is the length of a <br>
+     * shortest path from the node with index i of v.csr() TO v (Integer.MAX_VALUE if <br>
+     * there is none). This is one Dijkstra from v over the reversed edges. <br>
+     * Throw an IllegalArgumentException if v is a wall. */
+    public static int[] distancesTo(Node v) {
+        CsrGraph g= v.csr();
+        if (g == null) throw new IllegalArgumentException("distancesTo: a wall has no graph");
+        PathCache c= pathCache;
+        if (c == null) return distances(g.reverse(), v.index(), queueKind);
+        long key= PathCache.key(-1, v.index());
+        int[] f= c.field(g, key);
+        if (f == null) {
+            f= distances(g.reverse(), v.index(), queueKind);
+            c.putField(g, key, f);
         }
+        // the cache keeps its own copy: the caller may change this one
+        return f.clone();
+    }
+
+    /** Return the distance field of the node with index v in g: element i is the length <br>
+     * of a shortest path in g from v to node i (Integer.MAX_VALUE if there is none). */
+    private static int[] distances(CsrGraph g, int v, QueueKind kind) {
+        int[] dist= new int[g.size()];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        PQueue F= kind.create(g);
+        dist[v]= 0;
+        F.add(v, 0);
+        // invariant: dist holds the settled and frontier distances, as in shortestPath
+        int settled= 0;
+        while (!F.isEmpty()) {
+            int fi= F.poll();
+            settled++ ;
+            int fDist= dist[fi];
+            for (int e= g.firstExit(fi); e < g.endExit(fi); e++ ) {
+                int wi= g.target(e);
+                int len= fDist + g.weight(e);
+                if (len < dist[wi]) {
+                    dist[wi]= len;
+                    F.insertOrDecrease(wi, len);
+                }
+            }
+        }
+        expansions.add(settled);
+        return dist;
     }
 
     /** = the path from the start node to node last.<br>
-     * Precondition: mapSF contains all the necessary information about<br>
-     * ............. the path. */
-    public static List<Node> path(HashMap<Node, NodeData> mapSF, Node last) {
-        List<Node> path= new LinkedList<>();
-        Node p= last;
+     * Precondition: bkptr contains the backpointer (index of the previous node, <br>
+     * ............. -1 for the start node) of every node on the path in graph g. */
+    public static Path path(CsrGraph g, IntNodeMap bkptr, Node last) {
+        int k= 0;
+        for (int p= last.index(); p != -1; p= bkptr.get(p)) k++ ;
+        int[] nodes= new int[k];
         // invariant: All the nodes from p's successor to node last are in
-        // path, in reverse order.
-        while (p != null) {
-            path.add(0, p);
-            p= mapSF.get(p).bkptr;
-        }
-        return path;
+        // nodes[k..], in order.
+        for (int p= last.index(); p != -1; p= bkptr.get(p)) nodes[--k]= p;
+        return new Path(g, nodes);
     }
 
     /** Return the sum of the weights of the edges on path p. <br>
@@ -112,6 +478,8 @@ public class A6 {
      * If 1 node, it's a path of length 0, i.e. with no edges.
      */
     public static int pathSum(List<Node> p) {
+        // a Path knows its length
+        if (p instanceof Path) return ((Path) p).length();
         synchronized (p) {
             Node w= null;
             int sum= 0;
@@ -0,0 +1,319 @@
+package diver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/** A BeamSearchPlanner plans the scram by beam search over partial routes: routes from <br>
+ * the start through some coin keys that can still reach the exit within the budget.
+ *
+ * Layer by layer, every route of the beam is extended by each of its most promising <br>
+ * next stops (at most branching of them, ranked by coins per step from its last <br>
+ * stop). An extension is kept only if its last stop's distance to the exit still <br>
+ * fits in what is left of the budget, so every route in the beam can get out. <br>
+ * Each extension is scored by finishing it greedily (adding the stop with the most <br>
+ * coins per step until none fits): its score is the coins of the finished route, <br>
+ * and the finished route is a candidate answer, so the search has an answer from <br>
+ * the first layer on. The width best extensions form the next beam; routes that <br>
+ * visit the same stops and end at the same one are kept once. The search ends when <br>
+ * no route can be extended, at the depth limit, or at the deadline.
+ *
+ * The routes of a layer are extended in parallel on a ForkJoinPool. Their extensions <br>
+ * are put together in beam order and ranked by a total order (ties broken by a random <br>
+ * ranking of the keys drawn from the seed), so the plan depends only on the matrix, <br>
+ * the budget, the settings, the seed, and when the deadline falls, whatever the <br>
+ * number of threads. */
+public class BeamSearchPlanner implements ScramPlanner {
+
+    /** The default number of routes kept per layer. */
+    public static final int DEFAULT_WIDTH= 32;
+
+    /** The default number of extensions tried per route. */
+    public static final int DEFAULT_BRANCHING= 8;
+
+    /** The depth that stands for "no limit". */
+    public static final int UNLIMITED= Integer.MAX_VALUE;
+
+    private final int width;
+    private final int branching;
+    private final int depth;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    /** Constructor: a planner with the default width and branching, no depth limit, <br>
+     * and seed 0, that runs on the common ForkJoinPool. */
+    public BeamSearchPlanner() {
+        this(DEFAULT_WIDTH, DEFAULT_BRANCHING, UNLIMITED, 0, ForkJoinPool.commonPool());
+    }
+
+    /** Constructor: a planner that keeps width routes per layer, tries branching <br>
+     * extensions of each, grows routes to at most depth stops before finishing them <br>
+     * greedily, breaks ties with seed, and runs on pool. <br>
+     * Precondition: width, branching and depth are at least 1. */
+    public BeamSearchPlanner(int width, int branching, int depth, long seed, ForkJoinPool pool) {
+        this.width= width;
+        this.branching= branching;
+        this.depth= depth;
+        this.seed= seed;
+        this.pool= pool;
+    }
+
+    @Override
+    public CoinRoute plan(CoinDistanceMatrix m, int budget, long deadline) {
+        return new Search(m, budget).run(deadline);
+    }
+
+    @Override
+    public String toString() {
+        return "BeamSearchPlanner[width " + width + ", branching " + branching + ", depth " +
+            (depth == UNLIMITED ? "unlimited" : depth) + ", seed " + seed + ", " +
+            pool.getParallelism() + " threads]";
+    }
+
+    /** An instance is a partial route: the route of parent followed by key at <br>
+     * (for the root, just START). */
+    private static final class State {
+        /** The route this one extends (null for the root). */
+        final State parent;
+        /** The last stop. */
+        final int at;
+        /** The number of stops after START. */
+        final int stops;
+        /** The steps the route takes, from START to at. */
+        final int used;
+        /** The coins on the stops. */
+        final int value;
+        /** Bit k is set iff key k is a stop. */
+        final long[] visited;
+        /** The route finished greedily from this one (null until it is scored). */
+        State done;
+
+        State(State parent, int at, int stops, int used, int value, long[] visited) {
+            this.parent= parent;
+            this.at= at;
+            this.stops= stops;
+            this.used= used;
+            this.value= value;
+            this.visited= visited;
+        }
+
+        boolean visits(int k) {
+            return (visited[k >>> 6] & 1L << k) != 0;
+        }
+    }
+
+    /** An instance is the state of one search. */
+    private final class Search {
+
+        /** The matrix planned over, the distances between its keys, and their coins. */
+        private final CoinDistanceMatrix m;
+        private final int[][] d;
+        private final int[] coins;
+
+        /** The most steps a route may take. */
+        private final int budget;
+
+        /** The coin keys that some route within the budget visits <br>
+         * (CoinDistanceMatrix.candidates). */
+        private final int[] cand;
+
+        /** tie[k] is key k's place in a random ranking of the keys, drawn from the seed. */
+        private final int[] tie;
+
+        /** The best finished route so far (null if none). */
+        private State best;
+        private int bestLength;
+
+        /** Constructor: a search in m for routes of length at most budget. */
+        Search(CoinDistanceMatrix m, int budget) {
+            this.m= m;
+            this.budget= budget;
+            int size= m.size();
+            d= m.keyDistances();
+            coins= new int[size];
+            for (int k= 2; k < size; k++ ) {
+                coins[k]= m.coins(k);
+            }
+            cand= m.candidates(budget);
+            tie= new int[size];
+            Random rand= new Random(seed);
+            for (int k= 0; k < size; k++ ) {
+                // Fisher-Yates: tie[0..k] is a random permutation of 0..k
+                int j= rand.nextInt(k + 1);
+                tie[k]= tie[j];
+                tie[j]= k;
+            }
+        }
+
+        /** Run the search until it ends or deadline (a System.nanoTime() value) passes, <br>
+         * and return the best route found. */
+        CoinRoute run(long deadline) {
+            if (d[CoinDistanceMatrix.START][CoinDistanceMatrix.EXIT] > budget) {
+                return new CoinRoute(m, new int[0]);
+            }
+            State root= new State(null, CoinDistanceMatrix.START, 0, 0, 0,
+                new long[(m.size() + 63) >>> 6]);
+            offer(finish(root));
+
+            List<State> beam= List.of(root);
+            for (int layer= 0; layer < depth && !beam.isEmpty() &&
+                System.nanoTime() < deadline; layer++ ) {
+                List<List<State>> kids= Layers.extendAll(pool, beam, this::extend);
+
+                // in beam order, so that the answer does not depend on the threads
+                List<State> next= new ArrayList<>();
+                for (List<State> k : kids) {
+                    for (State s : k) offer(s.done);
+                    next.addAll(k);
+                }
+                beam= select(next);
+            }
+            return toRoute(best);
+        }
+
+        /** Return the extensions of s by its best next stops that can still get out, <br>
+         * each with its greedy finish. */
+        private List<State> extend(State s) {
+            int slack= budget - s.used;
+            // the branching best stops by coins per step, in rank order
+            int[] top= new int[branching];
+            double[] topRatio= new double[branching];
+            int nt= 0;
+            for (int k : cand) {
+                if (s.visits(k)) continue;
+                int dk= d[s.at][k];
+                if (dk == CoinDistanceMatrix.INF || (long) dk + d[k][CoinDistanceMatrix.EXIT] > slack) {
+                    continue;
+                }
+                double r= coins[k] / (dk + 1.0);
+                if (nt == branching && !before(r, k, topRatio[nt - 1], top[nt - 1])) continue;
+                int i= nt < branching ? nt++ : nt - 1;
+                // insertion step: shift worse entries down to make room at i
+                while (i > 0 && before(r, k, topRatio[i - 1], top[i - 1])) {
+                    top[i]= top[i - 1];
+                    topRatio[i]= topRatio[i - 1];
+                    i-- ;
+                }
+                top[i]= k;
+                topRatio[i]= r;
+            }
+            List<State> kids= new ArrayList<>(nt);
+            for (int i= 0; i < nt; i++ ) {
+                int k= top[i];
+                long[] v= s.visited.clone();
+                v[k >>> 6]|= 1L << k;
+                State c= new State(s, k, s.stops + 1, s.used + d[s.at][k], s.value + coins[k], v);
+                c.done= finish(c);
+                kids.add(c);
+            }
+            return kids;
+        }
+
+        /** Return true iff a stop with ratio r and key k ranks before one with ratio r2 <br>
+         * and key k2. */
+        private boolean before(double r, int k, double r2, int k2) {
+            return r != r2 ? r > r2 : tie[k] < tie[k2];
+        }
+
+        /** Return the width best of states by the coins of their greedy finishes (then <br>
+         * by their lengths), dropping all but the first of those that visit the same <br>
+         * stops and end at the same one. */
+        private List<State> select(List<State> states) {
+            Comparator<State> order= Comparator.<State> comparingInt((s) -> -s.done.value)
+                .thenComparingInt((s) -> length(s.done))
+                .thenComparingInt((s) -> tie[s.at])
+                .thenComparing((s, t) -> Arrays.compare(s.visited, t.visited));
+            states.sort(order);
+            List<State> beam= new ArrayList<>(Math.min(width, states.size()));
+            Set<Signature> seen= new HashSet<>();
+            for (State s : states) {
+                if (beam.size() == width) break;
+                if (seen.add(new Signature(s))) beam.add(s);
+            }
+            return beam;
+        }
+
+        /** Return s extended greedily, each time by the stop with the most coins per <br>
+         * step that can still get out, until none can. */
+        private State finish(State s) {
+            long[] v= s.visited.clone();
+            State t= s;
+            while (true) {
+                int slack= budget - t.used;
+                int bk= -1;
+                double br= -1;
+                for (int k : cand) {
+                    if ((v[k >>> 6] & 1L << k) != 0) continue;
+                    int dk= d[t.at][k];
+                    if (dk == CoinDistanceMatrix.INF ||
+                        (long) dk + d[k][CoinDistanceMatrix.EXIT] > slack) {
+                        continue;
+                    }
+                    double r= coins[k] / (dk + 1.0);
+                    if (bk == -1 || before(r, k, br, bk)) {
+                        bk= k;
+                        br= r;
+                    }
+                }
+                if (bk == -1) return t;
+                v[bk >>> 6]|= 1L << bk;
+                int used= t.used + d[t.at][bk];
+                // the visited set is shared along the greedy tail; only the end is read
+                t= new State(t, bk, t.stops + 1, used, t.value + coins[bk], v);
+            }
+        }
+
+        /** Return the length of route s, with the way from its last stop to the exit. */
+        private int length(State s) {
+            return s.used + d[s.at][CoinDistanceMatrix.EXIT];
+        }
+
+        /** Make finished route s the best so far if it is better. */
+        private void offer(State s) {
+            int length= length(s);
+            if (best == null || s.value > best.value || s.value == best.value && length < bestLength) {
+                best= s;
+                bestLength= length;
+            }
+        }
+
+        /** Return the CoinRoute of s. */
+        private CoinRoute toRoute(State s) {
+            int[] keys= new int[s.stops];
+            for (State t= s; t.parent != null; t= t.parent) {
+                keys[t.stops - 1]= t.at;
+            }
+            return new CoinRoute(m, keys);
+        }
+    }
+
+    /** The stops and last stop of a state, for finding states that differ only in order. */
+    private static final class Signature {
+        private final long[] visited;
+        private final int at;
+        private final int hash;
+
+        Signature(State s) {
+            visited= s.visited;
+            at= s.at;
+            hash= 31 * Arrays.hashCode(visited) + at;
+        }
+
+        @Override
+        public boolean equals(Object ob) {
+            if (!(ob instanceof Signature)) return false;
+            Signature g= (Signature) ob;
+            return at == g.at && Arrays.equals(visited, g.visited);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
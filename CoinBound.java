@@ -0,0 +1,187 @@
+package diver;
+
+import java.util.Arrays;
+
+import graph.ScramState;
+
+/** An instance gives upper bounds on the coins a scram route can still collect, for <br>
+ * pruning branch-and-bound searches (a partial route whose coins plus the bound cannot <br>
+ * beat the best route so far need not be extended) and for judging how far a route is <br>
+ * from the best possible.
+ *
+ * The bounds are for a route from a key "at" (a stop of a CoinDistanceMatrix) to the <br>
+ * exit that has steps steps left and may not visit the keys in a set skip. Three are <br>
+ * given, each at most the one before, each costlier to compute: <br>
+ * (1) reachable: the coins of the keys k with d(at, k) + d(k, exit) <= steps. The <br>
+ * distances to the exit are the matrix's exit field. <br>
+ * (2) fractional: a knapsack relaxation. A route's length is the sum of its legs, and <br>
+ * each leg can be split in halves between its two ends, so a stop k costs at least <br>
+ * cost(k), half the sum of its two shortest legs to other keys (the start and exit <br>
+ * included), its detour cost. The coins of a set of stops whose costs sum to more <br>
+ * than steps cannot all be had. Bound (2) fills the steps greedily by coins per <br>
+ * cost, taking a fraction of the first key that does not fit (Dantzig's bound). <br>
+ * (3) knapsack: the 0/1 knapsack over the same costs, solved exactly by dynamic <br>
+ * programming in time about steps * keys.
+ *
+ * Costs are computed once over all keys; with some keys skipped a stop's two shortest <br>
+ * legs can only get longer, so the bounds stay valid. */
+public class CoinBound {
+
+    /** The matrix bounded over, the distances between its keys, and their coins. */
+    private final CoinDistanceMatrix m;
+    private final int[][] d;
+    private final int[] coins;
+
+    /** The most steps a route may take. */
+    private final int budget;
+
+    /** cand[0..] are the coin keys that some route within the budget visits <br>
+     * (CoinDistanceMatrix.candidates), in decreasing order of coins per cost. */
+    private final int[] cand;
+
+    /** cost2[k] is twice the detour cost of key k: the sum of its two shortest legs. */
+    private final int[] cost2;
+
+    /** Constructor: bounds for routes in m of length at most budget from START. */
+    public CoinBound(CoinDistanceMatrix m, int budget) {
+        this.m= m;
+        this.budget= budget;
+        d= m.keyDistances();
+        int size= m.size();
+        coins= new int[size];
+        cost2= new int[size];
+        for (int k= 2; k < size; k++ ) {
+            coins[k]= m.coins(k);
+        }
+        int[] c= m.candidates(budget);
+        int n= c.length;
+        // the two shortest legs: to the start, the exit, or another key a route visits
+        int[] ends= new int[n + 2];
+        ends[0]= CoinDistanceMatrix.START;
+        ends[1]= CoinDistanceMatrix.EXIT;
+        for (int i= 0; i < n; i++ ) {
+            ends[i + 2]= c[i];
+        }
+        for (int i= 0; i < n; i++ ) {
+            int k= c[i];
+            int first= CoinDistanceMatrix.INF;
+            int second= CoinDistanceMatrix.INF;
+            for (int j : ends) {
+                if (j == k) continue;
+                int dj= d[k][j];
+                if (dj < first) {
+                    second= first;
+                    first= dj;
+                } else if (dj < second) {
+                    second= dj;
+                }
+            }
+            // a route that visits k leaves it for the exit or another key, so second is finite
+            cost2[k]= (int) Math.min((long) first + second, Integer.MAX_VALUE);
+        }
+        Integer[] byRatio= new Integer[n];
+        for (int i= 0; i < n; i++ ) {
+            byRatio[i]= c[i];
+        }
+        // coins/cost decreasing, compared by cross-multiplying; ties by key
+        Arrays.sort(byRatio, (a, b) -> {
+            int r= Long.compare((long) coins[b] * cost2[a], (long) coins[a] * cost2[b]);
+            return r != 0 ? r : Integer.compare(a, b);
+        });
+        cand= new int[n];
+        for (int i= 0; i < n; i++ ) {
+            cand[i]= byRatio[i];
+        }
+    }
+
+    /** Constructor: bounds for the scram of s, from where McDiver stands, with the <br>
+     * steps he has left. */
+    public CoinBound(ScramState s) {
+        this(new CoinDistanceMatrix(s.currentNode(), s.exit(), s.allNodes()), s.stepsToGo());
+    }
+
+    /** Return the matrix bounded over. */
+    public CoinDistanceMatrix matrix() {
+        return m;
+    }
+
+    /** Return the detour cost of key k (see the class comment; 0 for a key no route <br>
+     * within the budget visits). It may end in .5. */
+    public double cost(int k) {
+        return cost2[k] / 2.0;
+    }
+
+    /** Return the best of the bounds on the coins of a route from START within the <br>
+     * budget. */
+    public int upperBound() {
+        return knapsack(CoinDistanceMatrix.START, budget, null);
+    }
+
+    /** Return bound (1) on the coins a route from key at to the exit, with steps steps, <br>
+     * collects on keys not in skip (a bit set over the keys; null for none). The coins <br>
+     * on at do not count. */
+    public int reachable(int at, int steps, long[] skip) {
+        int sum= 0;
+        for (int k : cand) {
+            if (reaches(at, k, steps, skip)) sum+= coins[k];
+        }
+        return sum;
+    }
+
+    /** Return bound (2) on what reachable(at, steps, skip) bounds. */
+    public int fractional(int at, int steps, long[] skip) {
+        long room= 2L * steps;
+        long sum= 0;
+        for (int k : cand) {
+            if (!reaches(at, k, steps, skip)) continue;
+            if (cost2[k] <= room) {
+                room-= cost2[k];
+                sum+= coins[k];
+            } else {
+                // round down: the coins are whole
+                return (int) (sum + coins[k] * room / cost2[k]);
+            }
+        }
+        return (int) sum;
+    }
+
+    /** Return bound (3) on what reachable(at, steps, skip) bounds. */
+    public int knapsack(int at, int steps, long[] skip) {
+        int n= 0;
+        int[] items= new int[cand.length];
+        long total= 0;
+        int sum= 0;
+        for (int k : cand) {
+            if (!reaches(at, k, steps, skip)) continue;
+            items[n++ ]= k;
+            total+= cost2[k];
+            sum+= coins[k];
+        }
+        if (total <= 2L * steps) return sum;
+        int room= 2 * steps;
+        // best[w]: the most coins of items whose costs sum to at most w half steps
+        int[] best= new int[room + 1];
+        for (int i= 0; i < n; i++ ) {
+            int w= cost2[items[i]];
+            int v= coins[items[i]];
+            for (int r= room; r >= w; r-- ) {
+                if (best[r - w] + v > best[r]) best[r]= best[r - w] + v;
+            }
+        }
+        return best[room];
+    }
+
+    /** Return true iff key k, not in skip, can be visited on the way from key at to <br>
+     * the exit with steps steps. */
+    private boolean reaches(int at, int k, int steps, long[] skip) {
+        if (k == at || skip != null && (skip[k >>> 6] & 1L << k) != 0) return false;
+        int to= d[at][k];
+        return to != CoinDistanceMatrix.INF &&
+            (long) to + d[k][CoinDistanceMatrix.EXIT] <= steps;
+    }
+
+    @Override
+    public String toString() {
+        return "CoinBound[" + cand.length + " keys]";
+    }
+}
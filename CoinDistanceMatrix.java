@@ -0,0 +1,200 @@
+package diver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import graph.CsrGraph;
+import graph.Node;
+import graph.Path;
+
+/** An instance holds shortest-path distances between the key nodes of a scram sewer: <br>
+ * the start node (key START), the exit (key EXIT), and every node that had coins <br>
+ * when the instance was built (keys 2..size()-1, in order of node index). <br>
+ * It is built with one Dijkstra per key, run in parallel on a ForkJoinPool, and <br>
+ * keeps each key's whole distance field, so it also gives the distance between <br>
+ * a key and ANY node, and shortest paths are rebuilt from the fields on demand.
+ *
+ * Fields are stored as shorts when every distance fits, and as ints otherwise. <br>
+ * Sewer edges are undirected with positive lengths, so the distance from a key <br>
+ * to a node equals the distance from that node to the key. */
+public class CoinDistanceMatrix {
+
+    /** The key of the start node. */
+    public static final int START= 0;
+
+    /** The key of the exit node. */
+    public static final int EXIT= 1;
+
+    /** The distance between nodes that are not connected. */
+    public static final int INF= Integer.MAX_VALUE;
+
+    /** The graph the distances are in. */
+    private final CsrGraph g;
+
+    /** keys[k] is the node of key k. */
+    private final Node[] keys;
+
+    /** coins[k] is the value of the coins on keys[k] when this instance was built. */
+    private final int[] coins;
+
+    /** shortFields[k][i] is the distance between key k and the node with index i, <br>
+     * Short.MAX_VALUE standing for INF; null if the distances are kept in intFields. */
+    private final short[][] shortFields;
+
+    /** intFields[k][i] is the distance between key k and the node with index i; <br>
+     * null if the distances are kept in shortFields. */
+    private final int[][] intFields;
+
+    /** Constructor: the matrix for start node start, exit node exit, and the coins <br>
+     * on nodes, built on the common ForkJoinPool. */
+    public CoinDistanceMatrix(Node start, Node exit, Collection<Node> nodes) {
+        this(start, exit, nodes, ForkJoinPool.commonPool());
+    }
+
+    /** Constructor: the matrix for start node start, exit node exit, and the coins <br>
+     * on nodes, with the Dijkstras from the keys run on pool. */
+    public CoinDistanceMatrix(Node start, Node exit, Collection<Node> nodes, ForkJoinPool pool) {
+        g= start.csr();
+        List<Node> coinNodes= new ArrayList<>();
+        for (Node n : nodes) {
+            if (n.getTile().coins() > 0) coinNodes.add(n);
+        }
+        coinNodes.sort((a, b) -> Integer.compare(a.index(), b.index()));
+
+        keys= new Node[coinNodes.size() + 2];
+        keys[START]= start;
+        keys[EXIT]= exit;
+        for (int k= 2; k < keys.length; k++ ) {
+            keys[k]= coinNodes.get(k - 2);
+        }
+        coins= new int[keys.length];
+        for (int k= 0; k < keys.length; k++ ) {
+            coins[k]= keys[k].getTile().coins();
+        }
+
+        int[][] fields= new int[keys.length][];
+        pool.submit(() -> IntStream.range(0, keys.length).parallel()
+            .forEach((k) -> fields[k]= A6.distances(keys[k]))).join();
+
+        int max= 0;
+        for (int[] f : fields) {
+            for (int d : f) {
+                if (d != INF) max= Math.max(max, d);
+            }
+        }
+        if (max < Short.MAX_VALUE) {
+            shortFields= new short[keys.length][];
+            for (int k= 0; k < keys.length; k++ ) {
+                short[] s= new short[fields[k].length];
+                for (int i= 0; i < s.length; i++ ) {
+                    s[i]= fields[k][i] == INF ? Short.MAX_VALUE : (short) fields[k][i];
+                }
+                shortFields[k]= s;
+            }
+            intFields= null;
+        } else {
+            shortFields= null;
+            intFields= fields;
+        }
+    }
+
+    /** Return the number of keys (2 + the number of coin nodes). */
+    public int size() {
+        return keys.length;
+    }
+
+    /** Return the node of key k. */
+    public Node node(int k) {
+        return keys[k];
+    }
+
+    /** Return the value of the coins that were on the node of key k when this <br>
+     * matrix was built (they may have been picked up since). */
+    public int coins(int k) {
+        return coins[k];
+    }
+
+    /** Return the distance between key k and the node with index i (INF if none). */
+    public int distance(int k, int i) {
+        if (shortFields != null) {
+            short d= shortFields[k][i];
+            return d == Short.MAX_VALUE ? INF : d;
+        }
+        return intFields[k][i];
+    }
+
+    /** Return the distance between key k and node n (INF if none). */
+    public int distance(int k, Node n) {
+        return distance(k, n.index());
+    }
+
+    /** Return the distance from key a to key b (INF if none). */
+    public int keyDistance(int a, int b) {
+        return distance(b, keys[a].index());
+    }
+
+    /** Return a new size() x size() table whose element [a][b] is keyDistance(a, b). <br>
+     * Planners that look up key distances in their inner loops use it. */
+    public int[][] keyDistances() {
+        int[][] t= new int[keys.length][keys.length];
+        for (int a= 0; a < keys.length; a++ ) {
+            for (int b= 0; b < keys.length; b++ ) {
+                t[a][b]= keyDistance(a, b);
+            }
+        }
+        return t;
+    }
+
+    /** Return the coin keys that some route from START to EXIT of length at most <br>
+     * budget visits, in increasing order: those with coins and a way from START <br>
+     * through them to EXIT of length at most budget. The scram planners consider <br>
+     * only these keys. */
+    public int[] candidates(int budget) {
+        int[] c= new int[keys.length];
+        int n= 0;
+        for (int k= 2; k < keys.length; k++ ) {
+            int to= keyDistance(START, k);
+            int from= keyDistance(k, EXIT);
+            if (coins[k] > 0 && to != INF && from != INF && (long) to + from <= budget) {
+                c[n++ ]= k;
+            }
+        }
+        return Arrays.copyOf(c, n);
+    }
+
+    /** Return a shortest path from key a to key b (the empty list if there is none). */
+    public Path path(int a, int b) {
+        return pathFrom(keys[a], b);
+    }
+
+    /** Return a shortest path from node from to key k (the empty list if there is none). <br>
+     * It is rebuilt by walking down k's distance field: from each node, step to a <br>
+     * neighbor whose distance to k is smaller by exactly the edge length. */
+    public Path pathFrom(Node from, int k) {
+        int v= from.index();
+        int d= distance(k, v);
+        if (d == INF) return Path.empty(g);
+        int[] path= new int[16];
+        int n= 0;
+        path[n++ ]= v;
+        // invariant: path[0..n-1] is a shortest path from from to v, and d = distance(k, v)
+        while (d > 0) {
+            for (int e= g.firstExit(v); e < g.endExit(v); e++ ) {
+                int u= g.target(e);
+                int du= distance(k, u);
+                if (du != INF && du + g.weight(e) == d) {
+                    v= u;
+                    d= du;
+                    break;
+                }
+            }
+            if (n == path.length) path= Arrays.copyOf(path, 2 * n);
+            path[n++ ]= v;
+        }
+        return new Path(g, Arrays.copyOf(path, n));
+    }
+}
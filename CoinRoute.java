@@ -0,0 +1,89 @@
+package diver;
+
+import java.util.Arrays;
+
+/** An instance is a plan for the scram: the coin keys of a CoinDistanceMatrix to visit, <br>
+ * in order, on a walk from its START to its EXIT. Between consecutive stops the walk <br>
+ * takes a shortest path, so its length is the sum of the matrix distances along it.
+ *
+ * The coins of a route are those on its stops when the matrix was built. The paths <br>
+ * between stops may pass over more, so following a route collects at least that much. */
+public final class CoinRoute {
+
+    /** The length of a route some of whose stops cannot be reached. */
+    public static final int INF= Integer.MAX_VALUE;
+
+    /** The stops, in order (keys of the matrix, none of them START or EXIT). */
+    private final int[] keys;
+
+    /** The length of the walk START, keys..., EXIT (INF if it is not connected). */
+    private final int length;
+
+    /** The value of the coins on the stops. */
+    private final int coins;
+
+    /** Constructor: the route in m through the stops keys[0..n-1], in order. <br>
+     * Precondition: they are distinct keys of m other than START and EXIT. */
+    public CoinRoute(CoinDistanceMatrix m, int[] keys, int n) {
+        this.keys= Arrays.copyOf(keys, n);
+        long len= 0;
+        int c= 0;
+        int prev= CoinDistanceMatrix.START;
+        for (int i= 0; i <= n && len != INF; i++ ) {
+            int k= i < n ? keys[i] : CoinDistanceMatrix.EXIT;
+            int d= m.keyDistance(prev, k);
+            len= d == CoinDistanceMatrix.INF ? INF : Math.min(INF, len + d);
+            if (i < n) c+= m.coins(k);
+            prev= k;
+        }
+        length= (int) len;
+        coins= c;
+    }
+
+    /** Constructor: the route in m through the stops keys, in order. <br>
+     * Precondition: they are distinct keys of m other than START and EXIT. */
+    public CoinRoute(CoinDistanceMatrix m, int[] keys) {
+        this(m, keys, keys.length);
+    }
+
+    /** Return the number of stops. */
+    public int size() {
+        return keys.length;
+    }
+
+    /** Return stop i (a key of the matrix; stop 0 is the first). */
+    public int key(int i) {
+        return keys[i];
+    }
+
+    /** Return the stops, in order, in a new array. */
+    public int[] keys() {
+        return keys.clone();
+    }
+
+    /** Return the length of the walk from START through the stops to EXIT <br>
+     * (INF if some leg of it cannot be walked). */
+    public int length() {
+        return length;
+    }
+
+    /** Return the value of the coins on the stops when the matrix was built. */
+    public int coins() {
+        return coins;
+    }
+
+    /** Return true iff the walk can be done in budget steps. */
+    public boolean fits(int budget) {
+        return length <= budget;
+    }
+
+    /** Return true iff this route collects more coins than r, or as many in fewer steps. */
+    public boolean betterThan(CoinRoute r) {
+        return coins != r.coins ? coins > r.coins : length < r.length;
+    }
+
+    @Override
+    public String toString() {
+        return "CoinRoute[" + keys.length + " stops, " + coins + " coins, " + length + " steps]";
+    }
+}
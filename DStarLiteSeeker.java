@@ -0,0 +1,386 @@
+package diver;
+
+import java.util.Arrays;
+
+import graph.GameState;
+import graph.IntIndexedMinHeap;
+import graph.BufferedSeekState;
+import graph.SeekState;
+
+/** A DStarLiteSeeker walks McDiver to the ring in the seek phase by working out where <br>
+ * the ring is and replanning, with D* Lite, a shortest path to it that assumes every <br>
+ * tile not yet seen is open.
+ *
+ * Node ids are row * columns + column, so a neighbor one row away differs in id by the <br>
+ * number of columns: the first such neighbor gives the grid's width, and from then on <br>
+ * every id is a known (row, column). Every distance SeekState reports is the Manhattan <br>
+ * distance from a known tile to the ring, so the ring is on a diamond around that <br>
+ * tile. McDiver keeps the set of tiles on all the diamonds seen so far (the candidates); <br>
+ * after a few reports that are not all in one row or column, it is the ring alone.
+ *
+ * D* Lite searches backward from the candidates over the grid, whose edges join <br>
+ * adjacent tiles and cost 1 until McDiver stands on one of their ends and sees that the <br>
+ * other is not a neighbor. Each step, McDiver moves to the neighbor that starts a <br>
+ * shortest path and looks around; the edges found closed and the candidates ruled out <br>
+ * are the only changes, and D* Lite repairs the distances of just the tiles they <br>
+ * affect instead of searching again (S. Koenig and M. Likhachev, D* Lite, AAAI 2002).
+ *
+ * Until the width is known (while all neighbors are in McDiver's row), he walks along <br>
+ * the row toward the ring. If the ids turn out not to be grid positions, or the ring <br>
+ * falls outside the grid assumed, he finishes with a SeekExplorer. Neighbors are read <br>
+ * into reused buffers (see BufferedSeekState), so a step allocates nothing. */
+public class DStarLiteSeeker {
+
+    /** The g- and rhs-value of a tile that cannot reach a candidate. */
+    private static final int INF= Integer.MAX_VALUE / 4;
+
+    /** The directions north, south, west, east, as bits of walls. */
+    private static final int N= 0, S= 1, W= 2, E= 3;
+
+    /** The state explored. */
+    private final SeekState s;
+
+    /** The reports (id, distance to the ring) made before the width was known. */
+    private long[] reportId= new long[16];
+    private int[] reportDist= new int[16];
+    private int reports;
+
+    /** The grid assumed: rows x cols tiles, tile v at row v / cols and column v % cols. */
+    private int cols;
+    private int rows;
+
+    /** Bit d of walls[v] is set iff the edge from tile v in direction d is closed. */
+    private int[] walls;
+
+    /** reported[v] is true iff tile v's distance to the ring has been reported. */
+    private boolean[] reported;
+
+    /** The candidates for the ring's tile: goal[v] iff v is one; there are goals. */
+    private boolean[] goal;
+    private int[] goalList;
+    private int goals;
+
+    /** D* Lite's estimates of each tile's distance to the nearest candidate, its queue <br>
+     * of inconsistent tiles, and the key modifier. */
+    private int[] g;
+    private int[] rhs;
+    private IntIndexedMinHeap open;
+    private int km;
+
+    /** The tile McDiver stands on. */
+    private int start;
+
+    /** The ids and distances to the ring of McDiver's neighbors, as last read, and the <br>
+     * tiles whose edges look last closed; reused so that a step allocates nothing. */
+    private long[] nbrIds= new long[4];
+    private int[] nbrDist= new int[4];
+    private final int[] changed= new int[4];
+
+    /** Constructor: a seeker in s, standing where McDiver stands. */
+    public DStarLiteSeeker(SeekState s) {
+        this.s= s;
+    }
+
+    /** Walk to the ring. Precondition: the ring is reachable. */
+    public void run() {
+        if (s.distanceToRing() == 0) return;
+        if (!learnWidth() || !plan()) {
+            if (s.distanceToRing() != 0) new SeekExplorer(s).run();
+        }
+    }
+
+    /** Walk along McDiver's row, toward the ring when he can, until a neighbor in <br>
+     * another row gives the width of the grid; return true iff it did (false if he <br>
+     * stands on the ring or there is no way on). */
+    private boolean learnWidth() {
+        int dir= 0;
+        while (s.distanceToRing() != 0) {
+            long at= s.currentLocation();
+            report(at, s.distanceToRing());
+            boolean west= false;
+            boolean east= false;
+            int westDist= 0;
+            int eastDist= 0;
+            int k= lookAround();
+            for (int i= 0; i < k; i++ ) {
+                report(nbrIds[i], nbrDist[i]);
+                long diff= nbrIds[i] - at;
+                if (diff == 1) {
+                    east= true;
+                    eastDist= nbrDist[i];
+                } else if (diff == -1) {
+                    west= true;
+                    westDist= nbrDist[i];
+                } else {
+                    if (Math.abs(diff) >= Integer.MAX_VALUE) return false;
+                    cols= (int) Math.abs(diff);
+                }
+            }
+            if (cols > 0) return true;
+            if (dir == 0) dir= east && (!west || eastDist <= westDist) ? 1 : -1;
+            // a dead end: turn around
+            if (dir == 1 && !east || dir == -1 && !west) dir= -dir;
+            if (dir == 1 && !east || dir == -1 && !west) return false;
+            s.moveTo(at + dir);
+        }
+        return false;
+    }
+
+    /** Record that the node with id id is dist from the ring (before the width is known). */
+    private void report(long id, int dist) {
+        if (reports == reportId.length) {
+            reportId= Arrays.copyOf(reportId, 2 * reports);
+            reportDist= Arrays.copyOf(reportDist, 2 * reports);
+        }
+        reportId[reports]= id;
+        reportDist[reports]= dist;
+        reports++ ;
+    }
+
+    /** Walk to the ring by D* Lite; return true iff McDiver got there (false if the <br>
+     * grid assumed turned out wrong). Precondition: cols is known. */
+    private boolean plan() {
+        long here= s.currentLocation();
+        int d0= s.distanceToRing();
+        long maxRow= here / cols + d0;
+        for (int i= 0; i < reports; i++ ) {
+            maxRow= Math.max(maxRow, reportId[i] / cols);
+        }
+        if (here < 0 || maxRow >= Integer.MAX_VALUE / cols - 1) return false;
+        rows= (int) Math.max(GameState.MAX_ROWS, maxRow + 1);
+        // the largest finite key (see key) must fit in an int
+        if ((long) rows * cols * (2L * rows * cols + rows + cols + 1) > Integer.MAX_VALUE) {
+            return false;
+        }
+        int n= rows * cols;
+        walls= new int[n];
+        reported= new boolean[n];
+        goal= new boolean[n];
+        goalList= new int[n];
+        g= new int[n];
+        rhs= new int[n];
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        open= new IntIndexedMinHeap(n);
+        start= (int) here;
+
+        // the candidates: the diamond around McDiver, cut down by the other reports
+        int r0= row(start);
+        int c0= col(start);
+        for (int v= 0; v < n; v++ ) {
+            if (Math.abs(row(v) - r0) + Math.abs(col(v) - c0) == d0) {
+                goal[v]= true;
+                goalList[goals++ ]= v;
+            }
+        }
+        for (int i= 0; i < reports; i++ ) {
+            if (reportId[i] < 0 || reportId[i] >= n) return false;
+            rule((int) reportId[i], reportDist[i]);
+        }
+        if (!look(false)) return false;
+        for (int i= 0; i < goals; i++ ) {
+            int v= goalList[i];
+            rhs[v]= 0;
+            open.add(v, key(v));
+        }
+
+        int last= start;
+        while (true) {
+            computeShortestPath();
+            if (g[start] >= INF) return false;
+            int next= -1;
+            int best= INF;
+            for (int d= 0; d < 4; d++ ) {
+                int v= step(start, d);
+                if (v >= 0 && (walls[start] & 1 << d) == 0 && 1 + g[v] < best) {
+                    next= v;
+                    best= 1 + g[v];
+                }
+            }
+            s.moveTo(next);
+            start= next;
+            if (s.distanceToRing() == 0) return true;
+            km+= h(last, start);
+            last= start;
+            if (km >= n) rekey();
+            if (!look(true)) return false;
+        }
+    }
+
+    /** Look around the tile McDiver stands on: rule out candidates by the reported <br>
+     * distances and close the edges to tiles that are not neighbors, updating the <br>
+     * tiles affected if update. Return false if the grid assumed is wrong. */
+    private boolean look(boolean update) {
+        int nc= 0;
+        if (!reported[start]) rule(start, s.distanceToRing());
+        int seen= 0;
+        int k= lookAround();
+        for (int i= 0; i < k; i++ ) {
+            long id= nbrIds[i];
+            int d= direction(start, id);
+            if (d < 0) return false;
+            seen|= 1 << d;
+            if (!reported[(int) id]) rule((int) id, nbrDist[i]);
+        }
+        if (goals == 0) return false;
+        for (int d= 0; d < 4; d++ ) {
+            if ((seen & 1 << d) != 0 || (walls[start] & 1 << d) != 0) continue;
+            walls[start]|= 1 << d;
+            int v= step(start, d);
+            if (v < 0) continue;
+            walls[v]|= 1 << opposite(d);
+            changed[nc++ ]= v;
+        }
+        // the candidates ruled out were updated by rule
+        if (update && nc > 0) {
+            updateVertex(start);
+            for (int i= 0; i < nc; i++ ) {
+                updateVertex(changed[i]);
+            }
+        }
+        return true;
+    }
+
+    /** Put the ids and distances to the ring of McDiver's neighbors in nbrIds and <br>
+     * nbrDist, lengthening them if need be, and return how many there are. */
+    private int lookAround() {
+        int k= BufferedSeekState.neighbors(s, nbrIds, nbrDist);
+        if (k > nbrIds.length || k > nbrDist.length) {
+            nbrIds= BufferedSeekState.fit(nbrIds, k);
+            nbrDist= BufferedSeekState.fit(nbrDist, k);
+            BufferedSeekState.neighbors(s, nbrIds, nbrDist);
+        }
+        return k;
+    }
+
+    /** Rule out the candidates that are not dist from tile v; once the search has <br>
+     * started, a tile that stops being a candidate is updated. */
+    private void rule(int v, int dist) {
+        reported[v]= true;
+        int k= 0;
+        for (int i= 0; i < goals; i++ ) {
+            int u= goalList[i];
+            if (h(u, v) == dist) {
+                goalList[k++ ]= u;
+            } else {
+                goal[u]= false;
+                if (rhs[u] == 0) updateVertex(u);
+            }
+        }
+        goals= k;
+    }
+
+    /** Return the direction from tile v to the node with id id, or -1 if it is not a <br>
+     * tile of the grid next to v. */
+    private int direction(int v, long id) {
+        if (id == v - cols && v >= cols) return N;
+        if (id == v + cols && v + cols < rows * cols) return S;
+        if (id == v - 1 && col(v) > 0) return W;
+        if (id == v + 1 && col(v) < cols - 1) return E;
+        return -1;
+    }
+
+    /** Return the tile next to v in direction d, or -1 if it is off the grid. */
+    private int step(int v, int d) {
+        switch (d) {
+        case N:
+            return v >= cols ? v - cols : -1;
+        case S:
+            return v + cols < rows * cols ? v + cols : -1;
+        case W:
+            return col(v) > 0 ? v - 1 : -1;
+        default:
+            return col(v) < cols - 1 ? v + 1 : -1;
+        }
+    }
+
+    /** Return the direction opposite to d. */
+    private static int opposite(int d) {
+        return d ^ 1;
+    }
+
+    private int row(int v) {
+        return v / cols;
+    }
+
+    private int col(int v) {
+        return v % cols;
+    }
+
+    /** Return the Manhattan distance between tiles a and b. */
+    private int h(int a, int b) {
+        return Math.abs(row(a) - row(b)) + Math.abs(col(a) - col(b));
+    }
+
+    /** Return the key of tile v, its two parts packed into one int: the first, <br>
+     * min(g, rhs) + h(start, v) + km, times 1 + the number of tiles, plus the second, <br>
+     * min(g, rhs), which is at most the number of tiles when finite. km is kept below <br>
+     * the number of tiles (see rekey), and plan() gives up on grids so large that <br>
+     * a finite key would not then fit in an int. So only a tile that cannot reach a <br>
+     * candidate has a key too big, and it is cut down to Integer.MAX_VALUE. */
+    private int key(int v) {
+        int m= Math.min(g[v], rhs[v]);
+        long k= (long) (m + h(start, v) + km) * (rows * cols + 1) + m;
+        return (int) Math.min(k, Integer.MAX_VALUE);
+    }
+
+    /** Set km to 0 and recompute the key of every queued tile. The keys are then those <br>
+     * of a search started from where McDiver stands, so the queue stays ordered the same <br>
+     * way; done once every rows * cols steps, it costs little per step. */
+    private void rekey() {
+        km= 0;
+        for (int v= 0; v < rows * cols; v++ ) {
+            if (open.contains(v)) open.changePriority(v, key(v));
+        }
+    }
+
+    /** Recompute rhs[v] from its neighbors and put v in the queue iff it is <br>
+     * inconsistent. */
+    private void updateVertex(int v) {
+        if (!goal[v]) {
+            int best= INF;
+            for (int d= 0; d < 4; d++ ) {
+                int w= step(v, d);
+                if (w >= 0 && (walls[v] & 1 << d) == 0 && g[w] < INF) best= Math.min(best, 1 + g[w]);
+            }
+            rhs[v]= best;
+        } else {
+            rhs[v]= 0;
+        }
+        if (g[v] != rhs[v]) {
+            if (open.contains(v)) {
+                open.changePriority(v, key(v));
+            } else {
+                open.add(v, key(v));
+            }
+        } else {
+            open.remove(v);
+        }
+    }
+
+    /** Settle tiles until the start is consistent and no queued tile has a smaller key. */
+    private void computeShortestPath() {
+        while (!open.isEmpty() && (open.peekPriority() < key(start) || rhs[start] != g[start])) {
+            int u= open.peek();
+            int kOld= open.peekPriority();
+            int kNew= key(u);
+            if (kOld < kNew) {
+                open.changePriority(u, kNew);
+            } else if (g[u] > rhs[u]) {
+                g[u]= rhs[u];
+                open.poll();
+                for (int d= 0; d < 4; d++ ) {
+                    int w= step(u, d);
+                    if (w >= 0 && (walls[u] & 1 << d) == 0) updateVertex(w);
+                }
+            } else {
+                g[u]= INF;
+                updateVertex(u);
+                for (int d= 0; d < 4; d++ ) {
+                    int w= step(u, d);
+                    if (w >= 0 && (walls[u] & 1 << d) == 0) updateVertex(w);
+                }
+            }
+        }
+    }
+}
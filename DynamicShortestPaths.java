@@ -0,0 +1,264 @@
+package diver;
+
+import java.util.Arrays;
+
+import graph.CsrGraph;
+import graph.Node;
+import graph.PQueue;
+
+/** An instance is a shortest-path tree of a sewer graph, rooted at a node that moves. <br>
+ * Each node has its distance from the root and its parent on a shortest path from the <br>
+ * root. When the root moves (moveRoot), the tree is repaired instead of being rebuilt.
+ *
+ * Repair rests on this: if the new root r' was at distance D from the old root, then <br>
+ * every node in the subtree of r' keeps its tree path, and its distance drops by <br>
+ * exactly D (the tree path from r' gives at most d - D, and the triangle inequality <br>
+ * in an undirected graph gives at least d - D). Only the other nodes are searched <br>
+ * again, by a Dijkstra over them seeded from the edges that leave the subtree. <br>
+ * The tree keeps child lists, so the subtree is walked without looking at the rest <br>
+ * of the graph, and the work of a repair is the subtree walk plus a search of the <br>
+ * rest. A root that was not in the tree (unreachable) gets a full search.
+ *
+ * Sewer edges are undirected, which the repair needs.
+ *
+ * PathBenchmark's "dynamic" section measures repair against a full search. Neither a <br>
+ * root that moves a step at a time nor one that jumps a whole path repairs clearly <br>
+ * faster than Dijkstra from scratch on sewers, so no diver uses this class. */
+public class DynamicShortestPaths {
+
+    /** The distance of a node that cannot be reached from the root. */
+    public static final int INF= Integer.MAX_VALUE;
+
+    /** moveRoot repairs the tree only if the new root's subtree holds at least <br>
+     * 1/REPAIR_SHARE of the nodes; a smaller subtree saves less than the repair's <br>
+     * extra work (the walk, the seeds and their sort) costs, so a full search is done. */
+    static final int REPAIR_SHARE= 2;
+
+    /** The graph the tree is in. */
+    private final CsrGraph g;
+
+    /** The index of the root. */
+    private int root;
+
+    /** dist[i] is the length of a shortest path from the root to the node with index i <br>
+     * (INF if none), and parent[i] the index of the node before it on one (-1 for the <br>
+     * root and for nodes that cannot be reached). */
+    private final int[] dist;
+    private final int[] parent;
+
+    /** The children of node i in the tree form a list, firstChild[i] being the first <br>
+     * and next[c] the one after c (-1 ends the list); prev[c] is the one before c, or <br>
+     * -1 if c is first. */
+    private final int[] firstChild;
+    private final int[] next;
+    private final int[] prev;
+
+    /** The frontier queue of searches; empty between them. */
+    private final PQueue F;
+
+    /** Search scratch. In the search of epoch e, the nodes of the new root's subtree, <br>
+     * whose distances are final, have inSubtree[i] == e; any other node has a <br>
+     * distance from this search iff seen[i] == e. */
+    private final int[] seen;
+    private final int[] inSubtree;
+    private int epoch;
+    private final int[] stack;
+
+    /** The edges leaving the subtree in a repair: seed k leads from seedFrom[k] to <br>
+     * seedTo[k]. order[0..] holds (priority, k) packed in longs, sorted so that the <br>
+     * seeds are fed in order of priority. */
+    private int[] seedFrom= new int[16];
+    private int[] seedTo= new int[16];
+    private long[] order= new long[16];
+
+    /** Constructor: the shortest-path tree rooted at node root, searched with frontier <br>
+     * queues of the kind A6 uses. Throw an IllegalArgumentException if root is a wall. */
+    public DynamicShortestPaths(Node root) {
+        g= root.csr();
+        if (g == null) throw new IllegalArgumentException("DynamicShortestPaths: a wall has no graph");
+        int n= g.size();
+        dist= new int[n];
+        parent= new int[n];
+        firstChild= new int[n];
+        next= new int[n];
+        prev= new int[n];
+        F= A6.queueKind().create(g);
+        seen= new int[n];
+        inSubtree= new int[n];
+        stack= new int[n];
+        fullSearch(root.index());
+    }
+
+    /** Return the length of a shortest path from the root to node n (INF if none). */
+    public int distance(Node n) {
+        return dist[n.index()];
+    }
+
+    /** Make node r the root, repairing the tree. Return true iff it was repaired <br>
+     * rather than rebuilt by a full search, which is done if r was unreachable or its <br>
+     * subtree is small (see REPAIR_SHARE). Precondition: r is in this tree's graph. */
+    public boolean moveRoot(Node r) {
+        int nr= r.index();
+        if (nr == root) return true;
+        if (dist[nr] == INF || !subtreeHolds(nr, g.size() / REPAIR_SHARE)) {
+            fullSearch(nr);
+            return false;
+        }
+        repair(nr);
+        return true;
+    }
+
+    /** Return true iff the subtree of the node with index r has at least k nodes. <br>
+     * It walks at most k of them. */
+    private boolean subtreeHolds(int r, int k) {
+        int size= 0;
+        int top= 0;
+        stack[top++ ]= r;
+        while (top > 0) {
+            int v= stack[--top];
+            if (++size >= k) return true;
+            for (int c= firstChild[v]; c != -1; c= next[c]) {
+                stack[top++ ]= c;
+            }
+        }
+        return false;
+    }
+
+    /** Rebuild the tree from scratch, rooted at the node with index r. This is a plain <br>
+     * Dijkstra that sets only parents; the child lists are linked once it is done. */
+    private void fullSearch(int r) {
+        root= r;
+        Arrays.fill(dist, INF);
+        Arrays.fill(parent, -1);
+        dist[r]= 0;
+        F.add(r, 0);
+        while (!F.isEmpty()) {
+            int f= F.poll();
+            int fDist= dist[f];
+            for (int e= g.firstExit(f); e < g.endExit(f); e++ ) {
+                int w= g.target(e);
+                int len= fDist + g.weight(e);
+                if (len < dist[w]) {
+                    dist[w]= len;
+                    parent[w]= f;
+                    F.insertOrDecrease(w, len);
+                }
+            }
+        }
+
+        Arrays.fill(firstChild, -1);
+        for (int w= 0; w < parent.length; w++ ) {
+            int p= parent[w];
+            if (p == -1) continue;
+            prev[w]= -1;
+            next[w]= firstChild[p];
+            if (next[w] != -1) prev[next[w]]= w;
+            firstChild[p]= w;
+        }
+    }
+
+    /** Re-root the tree at the node with index r, which is in it. */
+    private void repair(int r) {
+        epoch++ ;
+        int d= dist[r];
+        setParent(r, -1);
+        root= r;
+
+        // walk r's subtree breadth-first; its paths stay, d shorter. Afterwards
+        // stack[0..size-1] holds the subtree.
+        int size= 0;
+        stack[size++ ]= r;
+        for (int h= 0; h < size; h++ ) {
+            int v= stack[h];
+            inSubtree[v]= epoch;
+            dist[v]-= d;
+            for (int c= firstChild[v]; c != -1; c= next[c]) {
+                stack[size++ ]= c;
+            }
+        }
+        // collect the edges leaving the subtree
+        int ns= 0;
+        for (int h= 0; h < size; h++ ) {
+            int v= stack[h];
+            for (int e= g.firstExit(v); e < g.endExit(v); e++ ) {
+                int w= g.target(e);
+                if (inSubtree[w] == epoch) continue;
+                if (ns == order.length) {
+                    order= Arrays.copyOf(order, 2 * ns);
+                    seedFrom= Arrays.copyOf(seedFrom, 2 * ns);
+                    seedTo= Arrays.copyOf(seedTo, 2 * ns);
+                }
+                seedFrom[ns]= v;
+                seedTo[ns]= w;
+                order[ns]= (long) (dist[v] + g.weight(e)) << 32 | ns;
+                ns++ ;
+            }
+        }
+        Arrays.sort(order, 0, ns);
+        search(ns);
+    }
+
+    /** Run Dijkstra, relaxing only edges into nodes outside the new root's subtree, <br>
+     * from the nodes in F and the first ns seeds, each fed to F before the search <br>
+     * polls a priority above its own. Every priority in F lies in low..low+maxWeight, <br>
+     * low being the last priority polled, so feeding the seeds up to that bound before <br>
+     * each poll is early enough and keeps F within the window bucket queues need. */
+    private void search(int ns) {
+        int maxW= g.maxWeight();
+        int s= 0;
+        int low= 0;
+        while (true) {
+            int bound;
+            if (F.isEmpty()) {
+                if (s == ns) break;
+                // the next seed is the minimum; feed only its priority, as the window
+                // of an emptied queue need not start there
+                bound= (int) (order[s] >>> 32);
+            } else {
+                bound= low + maxW;
+            }
+            while (s < ns && (int) (order[s] >>> 32) <= bound) {
+                int k= (int) order[s];
+                relax(seedFrom[k], seedTo[k], (int) (order[s] >>> 32));
+                s++ ;
+            }
+            if (F.isEmpty()) continue;
+            int f= F.poll();
+            low= dist[f];
+            for (int e= g.firstExit(f); e < g.endExit(f); e++ ) {
+                int w= g.target(e);
+                if (inSubtree[w] != epoch) relax(f, w, low + g.weight(e));
+            }
+        }
+    }
+
+    /** If len is shorter than the distance of node w in this search, make it w's <br>
+     * distance, with parent v, and add w to F or lower its priority. */
+    private void relax(int v, int w, int len) {
+        if (seen[w] == epoch && len >= dist[w]) return;
+        seen[w]= epoch;
+        dist[w]= len;
+        setParent(w, v);
+        F.insertOrDecrease(w, len);
+    }
+
+    /** Make p the parent of node w in the tree (-1 for none), moving w between the <br>
+     * child lists. */
+    private void setParent(int w, int p) {
+        int old= parent[w];
+        if (old != -1) {
+            // unlink w from old's children
+            if (prev[w] == -1) firstChild[old]= next[w];
+            else next[prev[w]]= next[w];
+            if (next[w] != -1) prev[next[w]]= prev[w];
+        }
+        parent[w]= p;
+        if (p != -1) {
+            // link w in as p's first child
+            prev[w]= -1;
+            next[w]= firstChild[p];
+            if (next[w] != -1) prev[next[w]]= w;
+            firstChild[p]= w;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package diver;
+
+import java.util.Arrays;
+
+import graph.CsrGraph;
+import graph.Node;
+import graph.Path;
+import graph.ScramState;
+
+/** An instance holds every node's distance TO the exit of a scram sewer, computed <br>
+ * once by a reverse Dijkstra from the exit. With it, "can McDiver still get out?" <br>
+ * is a lookup, and a shortest way out is found by walking down the field. */
+public class ExitField {
+
+    /** The distance to the exit that stands for "the exit cannot be reached". */
+    public static final int INF= Integer.MAX_VALUE;
+
+    /** The graph the distances are in. */
+    private final CsrGraph g;
+
+    /** The exit node. */
+    private final Node exit;
+
+    /** dist[i] is the length of a shortest path from the node with index i to exit. */
+    private final int[] dist;
+
+    /** Constructor: the exit field of node exit. */
+    public ExitField(Node exit) {
+        this.exit= exit;
+        g= exit.csr();
+        dist= A6.distancesTo(exit);
+    }
+
+    /** Return the exit node. */
+    public Node exit() {
+        return exit;
+    }
+
+    /** Return the length of a shortest path from node n to the exit (INF if none). */
+    public int distance(Node n) {
+        return dist[n.index()];
+    }
+
+    /** Return the length of a shortest path from the node with index i to the exit <br>
+     * (INF if none). */
+    public int distance(int i) {
+        return dist[i];
+    }
+
+    /** Return true iff, with stepsToGo steps left, McDiver can step from node from to <br>
+     * its neighbor to and still reach the exit afterwards. <br>
+     * Precondition: to is a neighbor of from. */
+    public boolean canAfford(int stepsToGo, Node from, Node to) {
+        int d= dist[to.index()];
+        return d != INF && from.getEdge(to).length() + d <= stepsToGo;
+    }
+
+    /** Return true iff McDiver, in state s, can step to neighbor to and still get out. <br>
+     * Precondition: to is a neighbor of s.currentNode(). */
+    public boolean canAfford(ScramState s, Node to) {
+        return canAfford(s.stepsToGo(), s.currentNode(), to);
+    }
+
+    /** Return a shortest path from node from to the exit (the empty list if there is none). <br>
+     * It is found by stepping, at each node v, along an edge (v, u) with <br>
+     * length(v, u) + distance(u) = distance(v). */
+    public Path pathToExit(Node from) {
+        int v= from.index();
+        if (dist[v] == INF) return Path.empty(g);
+        int[] path= new int[16];
+        int k= 0;
+        path[k++ ]= v;
+        // invariant: path[0..k-1] is a shortest path from from to v
+        while (dist[v] > 0) {
+            for (int e= g.firstExit(v); e < g.endExit(v); e++ ) {
+                int u= g.target(e);
+                if (dist[u] != INF && g.weight(e) + dist[u] == dist[v]) {
+                    v= u;
+                    break;
+                }
+            }
+            if (k == path.length) path= Arrays.copyOf(path, 2 * k);
+            path[k++ ]= v;
+        }
+        return new Path(g, Arrays.copyOf(path, k));
+    }
+}
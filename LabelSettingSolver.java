@@ -0,0 +1,329 @@
+package diver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A LabelSettingSolver finds the most coins McDiver can collect on a walk from the <br>
+ * start to the exit within the budget, exactly, when the sewer is small enough, and <br>
+ * otherwise bounds it from above. It is for judging the heuristics, not for playing.
+ *
+ * A walk's coins are those of the coin nodes it visits, and going between them by <br>
+ * shortest paths only helps, so it suffices to search routes through the coin keys <br>
+ * of a CoinDistanceMatrix. A label is such a route: its last stop, the steps it used, <br>
+ * its coins, and its blocked set, the keys it visited or can no longer reach in the <br>
+ * budget. Label L dominates label M at the same stop if L used at most M's steps, has <br>
+ * at least M's coins, and blocks a subset of what M blocks: every extension of M is <br>
+ * then matched by one of L. Dominated labels are dropped. A label whose coins plus <br>
+ * a bound on the coins it can still collect cannot beat the best route so far (the <br>
+ * incumbent) is dropped too; the incumbent starts as a heuristic's route. The bound <br>
+ * is the least of the coins of the keys it does not block and CoinBound's fractional <br>
+ * knapsack bound.
+ *
+ * Labels are extended a layer (a number of stops) at a time, the labels of a layer in <br>
+ * parallel on a ForkJoinPool; each stop's labels are kept in a list that a thread <br>
+ * locks while it checks dominance. If more than maxLabels labels are live, or the <br>
+ * deadline passes, the search stops early: the answer is then the incumbent, with an <br>
+ * upper bound from the labels that were not yet extended. */
+public class LabelSettingSolver implements ScramPlanner {
+
+    /** The default cap on live labels: about 100 bytes each, with a sewer's keys. */
+    public static final int DEFAULT_MAX_LABELS= 1_000_000;
+
+    private final int maxLabels;
+    private final ForkJoinPool pool;
+
+    /** Constructor: a solver with the default label cap on the common ForkJoinPool. */
+    public LabelSettingSolver() {
+        this(DEFAULT_MAX_LABELS, ForkJoinPool.commonPool());
+    }
+
+    /** Constructor: a solver that stops early when more than maxLabels labels are <br>
+     * live, running on pool. Precondition: maxLabels >= 1. */
+    public LabelSettingSolver(int maxLabels, ForkJoinPool pool) {
+        this.maxLabels= maxLabels;
+        this.pool= pool;
+    }
+
+    @Override
+    public CoinRoute plan(CoinDistanceMatrix m, int budget, long deadline) {
+        return solve(m, budget, deadline).route();
+    }
+
+    /** Return the most valuable route in m of length at most budget, with a bound on <br>
+     * the coins of any such route, searching until deadline (a System.nanoTime() value). <br>
+     * The heuristic that finds the first incumbent gets a tenth of the time. */
+    public Result solve(CoinDistanceMatrix m, int budget, long deadline) {
+        long start= System.nanoTime();
+        if (m.keyDistance(CoinDistanceMatrix.START, CoinDistanceMatrix.EXIT) > budget) {
+            return new Result(new CoinRoute(m, new int[0]), 0, true, 0, System.nanoTime() - start);
+        }
+        long h= start + Math.max(0, deadline - start) / 10;
+        CoinRoute first= new BeamSearchPlanner().plan(m, budget, h);
+        first= new RouteImprover().improve(m, first, budget, h);
+        return new Search(m, budget, first).run(deadline, start);
+    }
+
+    @Override
+    public String toString() {
+        return "LabelSettingSolver[max " + maxLabels + " labels, " + pool.getParallelism() +
+            " threads]";
+    }
+
+    /** An instance is the outcome of a solve: the best route found, an upper bound <br>
+     * on the coins of every route within the budget, and whether the route was <br>
+     * proved optimal (then the bound is its coins). */
+    public static final class Result {
+        private final CoinRoute route;
+        private final int upperBound;
+        private final boolean optimal;
+        private final long labels;
+        private final long nanos;
+
+        Result(CoinRoute route, int upperBound, boolean optimal, long labels, long nanos) {
+            this.route= route;
+            this.upperBound= upperBound;
+            this.optimal= optimal;
+            this.labels= labels;
+            this.nanos= nanos;
+        }
+
+        /** Return the best route found. */
+        public CoinRoute route() {
+            return route;
+        }
+
+        /** Return an upper bound on the coins of every route within the budget. */
+        public int upperBound() {
+            return upperBound;
+        }
+
+        /** Return true iff route() is proved optimal. */
+        public boolean optimal() {
+            return optimal;
+        }
+
+        /** Return the number of labels created. */
+        public long labels() {
+            return labels;
+        }
+
+        /** Return the time the solve took, in nanoseconds. */
+        public long nanos() {
+            return nanos;
+        }
+
+        /** Return the relative optimality gap of a route with coins coins: how far short <br>
+         * of the upper bound it falls, as a fraction of the bound (0 if the bound is 0). */
+        public double gap(int coins) {
+            return upperBound == 0 ? 0 : (double) (upperBound - coins) / upperBound;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d coins, %s %d, %d labels in %.1f ms", route.coins(),
+                optimal ? "optimal:" : "bound", upperBound, labels, nanos / 1e6);
+        }
+    }
+
+    /** An instance is a route through coin keys (see the class comment). */
+    private static final class Label {
+        /** The route this one extends (null for the route that is just START). */
+        final Label parent;
+        final int at;
+        final int stops;
+        final int used;
+        final int value;
+        /** Bit k is set iff key k is a stop or can no longer be reached. */
+        final long[] blocked;
+        /** A bound on the coins the route can still collect. */
+        final int open;
+        /** Set when a dominating label is found; a dead label is not extended. */
+        volatile boolean dead;
+
+        Label(Label parent, int at, int stops, int used, int value, long[] blocked, int open) {
+            this.parent= parent;
+            this.at= at;
+            this.stops= stops;
+            this.used= used;
+            this.value= value;
+            this.blocked= blocked;
+            this.open= open;
+        }
+
+        /** Return true iff this label dominates (or equals) label b at the same stop. */
+        boolean dominates(Label b) {
+            if (used > b.used || value < b.value) return false;
+            for (int w= 0; w < blocked.length; w++ ) {
+                if ((blocked[w] & ~b.blocked[w]) != 0) return false;
+            }
+            return true;
+        }
+    }
+
+    /** An instance is the state of one solve. */
+    private final class Search {
+        private final CoinDistanceMatrix m;
+        private final int[][] d;
+        private final int[] coins;
+        private final int budget;
+        private final CoinBound bound;
+
+        /** The coin keys that some route within the budget visits <br>
+         * (CoinDistanceMatrix.candidates). */
+        private final int[] cand;
+
+        /** byStop[k] holds the live labels that end at key k. */
+        private final List<List<Label>> byStop;
+
+        /** The number of live labels, and of labels created. */
+        private final AtomicLong live= new AtomicLong();
+        private final AtomicLong created= new AtomicLong();
+
+        /** The incumbent: the best route so far, as a label or (at first) a CoinRoute. */
+        private volatile int bestValue;
+        private Label bestLabel;
+        private final CoinRoute first;
+
+        Search(CoinDistanceMatrix m, int budget, CoinRoute first) {
+            this.m= m;
+            this.budget= budget;
+            this.first= first;
+            bestValue= first.coins();
+            bound= new CoinBound(m, budget);
+            d= m.keyDistances();
+            coins= new int[m.size()];
+            for (int k= 2; k < m.size(); k++ ) {
+                coins[k]= m.coins(k);
+            }
+            cand= m.candidates(budget);
+            byStop= new ArrayList<>(m.size());
+            for (int k= 0; k < m.size(); k++ ) {
+                byStop.add(new ArrayList<>());
+            }
+        }
+
+        /** Extend labels layer by layer until none is left, the label cap is passed, or <br>
+         * deadline; return the result. start is when the solve began. */
+        Result run(long deadline, long start) {
+            Label root= child(null, CoinDistanceMatrix.START);
+            List<Label> layer= List.of(root);
+            // the labels left unextended when the search stopped early
+            List<Label> open= new ArrayList<>();
+            while (!layer.isEmpty()) {
+                List<List<Label>> kids= Layers.extendAll(pool, layer,
+                    (p) -> extend(p, deadline));
+                List<Label> next= new ArrayList<>();
+                for (int i= 0; i < kids.size(); i++ ) {
+                    if (kids.get(i) == null) {
+                        open.add(layer.get(i));
+                        continue;
+                    }
+                    for (Label l : kids.get(i)) {
+                        if (!l.dead) next.add(l);
+                    }
+                }
+                if (!open.isEmpty()) {
+                    open.addAll(next);
+                    break;
+                }
+                layer= next;
+            }
+
+            // a route within the budget extends an open label or is matched by one that
+            // was extended or is open
+            int upper= bestValue;
+            for (Label l : open) {
+                if (!l.dead) upper= Math.max(upper, l.value + l.open);
+            }
+            if (!open.isEmpty()) upper= Math.max(bestValue, Math.min(upper, bound.upperBound()));
+            CoinRoute route= bestLabel == null ? first : toRoute(bestLabel);
+            return new Result(route, upper, upper == route.coins(), created.get(),
+                System.nanoTime() - start);
+        }
+
+        /** Return the labels that extend label p by one stop and survive the pruning, <br>
+         * or null if deadline has passed or the label cap is reached, so that p is left <br>
+         * unextended. */
+        private List<Label> extend(Label p, long deadline) {
+            List<Label> out= new ArrayList<>();
+            if (p.dead) return out;
+            if (live.get() > maxLabels || System.nanoTime() >= deadline) return null;
+            for (int k : cand) {
+                if ((p.blocked[k >>> 6] & 1L << k) != 0) continue;
+                Label c= child(p, k);
+                created.incrementAndGet();
+                if (c.value > bestValue) offer(c);
+                // the keys c does not block cannot make a route better than the incumbent
+                if (c.value + c.open <= bestValue) continue;
+                if (insert(c)) out.add(c);
+            }
+            return out;
+        }
+
+        /** Return the label that extends p by key k (for p null, the label of START). <br>
+         * Precondition: p can reach k and then the exit in the budget. */
+        private Label child(Label p, int k) {
+            int used= p == null ? 0 : p.used + d[p.at][k];
+            long[] blocked= p == null ? new long[(m.size() + 63) >>> 6] : p.blocked.clone();
+            blocked[k >>> 6]|= 1L << k;
+            int open= 0;
+            for (int j : cand) {
+                if ((blocked[j >>> 6] & 1L << j) != 0) continue;
+                int dj= d[k][j];
+                if (dj == CoinDistanceMatrix.INF ||
+                    (long) used + dj + d[j][CoinDistanceMatrix.EXIT] > budget) {
+                    blocked[j >>> 6]|= 1L << j;
+                } else {
+                    open+= coins[j];
+                }
+            }
+            open= Math.min(open, bound.fractional(k, budget - used, blocked));
+            return new Label(p, k, p == null ? 0 : p.stops + 1, used,
+                p == null ? 0 : p.value + coins[k], blocked, open);
+        }
+
+        /** Put c in the labels of its stop unless one there dominates it, killing those <br>
+         * it dominates. Return true iff c was put in. */
+        private boolean insert(Label c) {
+            List<Label> list= byStop.get(c.at);
+            synchronized (list) {
+                for (Label l : list) {
+                    if (l.dominates(c)) return false;
+                }
+                int removed= 0;
+                for (int i= list.size() - 1; i >= 0; i-- ) {
+                    Label l= list.get(i);
+                    if (c.dominates(l)) {
+                        l.dead= true;
+                        // swap with the last and drop it: the order does not matter
+                        list.set(i, list.get(list.size() - 1));
+                        list.remove(list.size() - 1);
+                        removed++ ;
+                    }
+                }
+                list.add(c);
+                live.addAndGet(1 - removed);
+                return true;
+            }
+        }
+
+        /** Make c the incumbent if it has more coins. */
+        private synchronized void offer(Label c) {
+            if (c.value > bestValue) {
+                bestValue= c.value;
+                bestLabel= c;
+            }
+        }
+
+        /** Return the CoinRoute of label l. */
+        private CoinRoute toRoute(Label l) {
+            int[] keys= new int[l.stops];
+            for (Label t= l; t.parent != null; t= t.parent) {
+                keys[t.stops - 1]= t.at;
+            }
+            return new CoinRoute(m, keys);
+        }
+    }
+}
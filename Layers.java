@@ -0,0 +1,22 @@
+package diver;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/** Helpers for searches that extend a layer of partial routes at a time, in parallel.
+ *
+ * The results come back in the order of the layer, whatever thread computed each, so <br>
+ * a search that reads them in that order does not depend on the scheduling. */
+final class Layers {
+
+    private Layers() {}
+
+    /** Return the list of f applied to each element of layer, in layer's order (null <br>
+     * results included), the elements being processed in parallel on pool. */
+    static <T, R> List<R> extendAll(ForkJoinPool pool, List<T> layer, Function<T, R> f) {
+        return pool.submit(() -> layer.parallelStream().map(f).collect(Collectors.toList()))
+            .join();
+    }
+}
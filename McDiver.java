@@ -1,15 +1,11 @@
 package diver;
 
-import graph.NodeStatus;
 import graph.ScramState;
 import graph.Node;
+import graph.Path;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
 
 import graph.SeekState;
 import graph.SewerDiver;
@@ -22,6 +18,26 @@ import graph.SewerDiver;
 
 public class McDiver extends SewerDiver {
 
+    /** The time the scram planner gets to plan, in nanoseconds. Scram has <br>
+     * GameState.SCRAM_TIMEOUT seconds in all, and walking the plan takes little. */
+    public static final long PLAN_NANOS= 250_000_000L;
+
+    /** The planner of the scram (null for the greedy scram of exitOpt3). */
+    private static volatile ScramPlanner planner= new OrienteeringPlanner();
+
+    /** Make p the planner of the scram; null selects the greedy scram of exitOpt3. */
+    public static void setScramPlanner(ScramPlanner p) {
+        planner= p;
+    }
+
+    /** Return the planner of the scram (null if the scram is greedy). */
+    public static ScramPlanner scramPlanner() {
+        return planner;
+    }
+
+    /** During scram, the distance from every node to the exit. */
+    private ExitField exitField;
+
     /** Get to the ring in as few steps as possible. Once there, <br>
      * McDiver must return from this function in order to pick<br>
      * it up. If McDiver continues to move after finding the ring rather <br>
@@ -31,53 +47,7 @@ public class McDiver extends SewerDiver {
      */
     @Override
     public void seek(SeekState state) {
-        
-        // holds the visited nodes
-        HashMap<Long, Boolean> visit= new HashMap<>();
-        dfsWalk(state, visit);
-    }
-
-    //Abstract implementation of a depth first search walk
-    /** Node u= s.standingOn(); Visit u; for each neighbor w of u { if (w is unvisited) {
-     * s.moveTo(w); dfsWalk(s); s.moveTo(u); */
-
-    /** The walker is standing on the current node given by State s. Visit every node reachable
-     * along paths of unvisited nodes from current node. End with walker standing on ring's
-     * location. <br>
-     * Precondition: all nodes are unvisited. */
-    public void dfsWalk(SeekState s, HashMap<Long, Boolean> visit) {
-
-        // base case: if on ring, terminate- nothing more to find
-        if (s.distanceToRing() == 0) return;
-
-        long curr= s.currentLocation();
-        visit.put(curr, true);
-        ArrayList<NodeStatus> path= new ArrayList<>();
-
-        for (NodeStatus n : s.neighbors()) {
-            long id= n.getId();
-            Boolean hold= visit.get(id);
-            if (hold == null) {
-                visit.put(id, false);
-            }
-            path.add(n);
-        }
-
-        Collections.sort(path);
-
-        for (NodeStatus n : path) {
-            long id= n.getId();
-            Boolean hold= visit.get(id);
-            if (hold == false) {
-                s.moveTo(id);
-                // recursive case: keep going until distance to ring is found
-                dfsWalk(s, visit);
-                // backtracking case: terminate if zero
-                if (s.distanceToRing() == 0) return;
-                s.moveTo(curr);
-            }
-        }
-
+        new DStarLiteSeeker(state).run();
     }
 
     /** Scram --get out of the sewer system before the steps are all used, trying to <br>
@@ -90,95 +60,107 @@ public class McDiver extends SewerDiver {
         // HashMap<Node, Boolean> visit= new HashMap<>();
         // exitOpt2(state, visit);
 
-        exitOpt3(state);
+        ScramPlanner p= planner;
+        if (p == null) exitOpt3(state);
+        else exitPlanned(state, p);
 
     }
 
-    /** Uses shortest path along with knowing where the exit is to find quickest way out.
+    /** Has planner p plan a route through the coins that fits in the steps left, <br>
+     * improves it with a RouteImprover in the last tenth of the planning time, and <br>
+     * walks it. Every step is guarded by the exit field, so McDiver gets out even if <br>
+     * the plan were wrong. Steps the route leaves over are spent as exitOpt3 would. */
+    public void exitPlanned(ScramState s, ScramPlanner p) {
+        exitField= new ExitField(s.exit());
+        CoinDistanceMatrix m= new CoinDistanceMatrix(s.currentNode(), s.exit(), s.allNodes());
+        long start= System.nanoTime();
+        CoinRoute route= p.plan(m, s.stepsToGo(), start + PLAN_NANOS / 10 * 9);
+        route= new RouteImprover().improve(m, route, s.stepsToGo(), start + PLAN_NANOS);
+        for (int i= 0; i < route.size(); i++ ) {
+            Path leg= m.pathFrom(s.currentNode(), route.key(i));
+            // leg starts where McDiver stands: take its steps in order
+            for (int j= 1; j < leg.size(); j++ ) {
+                if (!safeMoveTo(s, leg.get(j))) {
+                    exitScram(s);
+                    return;
+                }
+            }
+        }
+        greedyToExit(s);
+    }
+
+    /** Uses the exit field (each node's distance to the exit) to find quickest way out.
      *
      * @param s */
     public void exitScram(ScramState s) {
-        // Node curr= s.currentNode();
-        // Node ex= s.exit();
-
         if (s.currentNode().equals(s.exit())) return;
-        List<Node> path= A6.shortestPath(s.currentNode(), s.exit());
-        // if node you're on is a neighbor of the node in the path, move to that
-        for (Node p : path) {
-            if (s.currentNode().getNeighbors().contains(p)) s.moveTo(p);
+        Path path= exitField.pathToExit(s.currentNode());
+        // the path starts where McDiver stands: take its steps in order
+        for (int i= 1; i < path.size(); i++ ) {
+            s.moveTo(path.get(i));
         }
     }
 
-    /** First, accesses all the nodes and get shortest path from current nodes to nodes with coins.
-     * <br>
-     * From there, gets coin sum and path sum of each of the shortest paths. Then, gets the ratio of
-     * <br>
-     * coin sum to path sum and sorts it from highest to lowest. Then, if numbers of steps permits,
-     * <br>
-     * McDiver follows that path from the current node along the highest ratio path, ultimately
-     * ending <br>
-     * on a coin. If there's not enough steps for the entire highest ratio path, McDiver traverses
-     * <br>
-     * part of it until it is absolutely time to scram */
-    public void checkAllNodes(ScramState s, Node curr) {
-        // get all the nodes
-        Collection<Node> allNotFiltered= s.allNodes();
-        Collection<Node> all= new ArrayList<>();
-
-        // filter out nodes with no coins
-        for (Node n : allNotFiltered) {
-            if (n.getTile().coins() != 0) all.add(n);
+    /** Move McDiver to neighbor x if that still leaves enough steps to get out, <br>
+     * and return true; otherwise, don't move and return false. This is a lookup in <br>
+     * the exit field, so it can guard every move.
+     *
+     * @param s
+     * @param x */
+    public boolean safeMoveTo(ScramState s, Node x) {
+        if (!exitField.canAfford(s, x)) return false;
+        s.moveTo(x);
+        return true;
+    }
+
+    /** First, runs one Dijkstra from the current node that stops once every node of <br>
+     * coinNodes that still has coins is settled. <br>
+     * From its tree, gets the ratio of the distance to each such node to the coin sum <br>
+     * of the path to it, and picks the lowest ratio. Then, if numbers of steps permits, <br>
+     * McDiver follows that path. If there's not enough steps for the entire path, <br>
+     * McDiver traverses part of it until it is absolutely time to scram */
+    public void checkAllNodes(ScramState s, List<Node> coinNodes) {
+        Node curr= s.currentNode();
+
+        // forget the nodes whose coins are gone
+        coinNodes.removeIf((n) -> n.getTile().coins() == 0);
+        ShortestPathTree tree= A6.shortestPathsTo(curr, coinNodes);
+
+        // coin node with the lowest path sum / coin sum ratio (unreachable ones are
+        // not in the tree)
+        Node best= null;
+        double bestRatio= Double.MAX_VALUE;
+        for (Node t : tree.targets()) {
+            int pSum= tree.distance(t);
+            // coins picked up on the way count too; the tree knows them without the path
+            double cSum= tree.coins(t);
+            double ratio= pSum / cSum;
+            if (ratio < bestRatio) {
+                bestRatio= ratio;
+                best= t;
+            }
         }
-        // no coins on the board
-        if (all.size() == 0) {
+        // no coins left on the board
+        if (best == null) {
             exitScram(s);
             return;
         }
 
-        // list of shortest paths
-        List<List<Node>> shp= new ArrayList<>();
-        for (Node n : all) {
-            shp.add(A6.shortestPath(curr, n));
-        }
-
-        // coinsum of shortest paths
-        // path sum of shortest paths
-        HashMap<List<Node>, Integer> cs= new HashMap<>(); // list of nodes in a path; coin sum
-        HashMap<List<Node>, Integer> ps= new HashMap<>(); // list of nodes in a path; path sum
-        for (List<Node> ln : shp) {
-            cs.put(ln, A6.coinSum(ln));
-            ps.put(ln, A6.pathSum(ln));
-        }
-
-        // coinsum / path sum, along with nodes
-        HashMap<Double, List<Node>> ratio= new HashMap<>();
-
-        // put the ratio into the hashmap
-        for (List<Node> n : cs.keySet()) {
-            double cSum= cs.get(n);
-            double pSum= ps.get(n);
-            ratio.put(pSum / cSum, n);
-        }
-
-        // sort from highest to lowest
-        Set<Double> sh= ratio.keySet();
-        List<Double> shList= new ArrayList<>(sh);
-        Collections.sort(shList);
-
         // while enough steps, go to as many as you can
 
-        List<Node> dest= ratio.get(shList.get(0));
-        Node lastDest= dest.get(dest.size() - 1);
-        int checkPathSum= A6.pathSum(ratio.get(shList.get(0))); // path to 'best' option
+        Path dest= tree.pathTo(best);
+        int checkPathSum= tree.distance(best); // path to 'best' option
         int steps= s.stepsToGo();
-        int shPathSum= A6.pathSum(A6.shortestPath(lastDest, s.exit())); // check if there are enough
-                                                                        // steps to go
+        int shPathSum= exitField.distance(best); // check if there are enough steps to go
 
         // if steps - check path sum > shpath sum go forth, otherwise scram
         if (steps - checkPathSum > shPathSum) {
-            for (Node x : dest) {
-                if (s.currentNode().getNeighbors().contains(x))
-                    s.moveTo(x);
+            // dest starts where McDiver stands: take its steps in order
+            for (int i= 1; i < dest.size(); i++ ) {
+                if (!safeMoveTo(s, dest.get(i))) {
+                    exitScram(s);
+                    return;
+                }
             }
         } else {
 
@@ -192,52 +174,38 @@ public class McDiver extends SewerDiver {
     }
 
     /** If not enough steps for the entire path, traverse part of the path until forced to exit.
+     * <br>
+     * Whether a step along the path still leaves a way out is a lookup in the exit field.
      *
      * @param s
      * @param ln */
-    public void goPartway(ScramState s, List<Node> ln) {
-        Node curr= ln.get(0);
-        // System.out.println(curr.equals(s.currentNode()));
-        // get shortest paths from current node throughout the list node
-        HashMap<Node, List<Node>> shp= new HashMap<>();
-        for (Node x : ln) {
-            shp.put(x, A6.shortestPath(x, s.exit()));
-        }
-
-        int st= s.stepsToGo();
-        
-        // as long as there are enough steps in part of the path, keep going
-        for (Node x : ln) {
-            Set<Node> ne = curr.getNeighbors(); 
-            if (ne.contains(x)) {
-                if (st > curr.getEdge(x).length() + A6.pathSum(shp.get(x))) {
-                    if (ne.contains(x)) {
-                        s.moveTo(x);
-                        return;
-                    }
-                } else {
-                    exitScram(s);
-                    return;
-                }
-
-            }
-            curr= x;
-        }
-
+    public void goPartway(ScramState s, Path ln) {
+        // ln starts where McDiver stands; take its first step if there are enough steps
+        // for it, otherwise scram
+        if (ln.size() < 2 || !safeMoveTo(s, ln.get(1))) exitScram(s);
     }
 
     /** While able to continue(has enough steps), McDiver goes to node with the lowest path to coin
-     * value ratio. */
+     * value ratio. Each choice takes one Dijkstra from where McDiver stands, which stops
+     * <br>
+     * once the nodes with coins are settled; the way out is looked up in an ExitField. */
     public void exitOpt3(ScramState s) {
-        // Node curr = s.currentNode();
-        int pSum= A6.pathSum(A6.shortestPath(s.currentNode(), s.exit()));
-        int st= s.stepsToGo();
+        exitField= new ExitField(s.exit());
+        greedyToExit(s);
+    }
 
-        while (st > pSum) {
-            checkAllNodes(s, s.currentNode());
-            if (s.currentNode().equals(s.exit())) return;
+    /** The loop of exitOpt3: from where McDiver stands, go to the coin node with the <br>
+     * lowest path to coin value ratio while the steps allow, then get out. <br>
+     * Precondition: exitField is the exit field of s. */
+    public void greedyToExit(ScramState s) {
+        List<Node> coinNodes= new ArrayList<>();
+        for (Node n : s.allNodes()) {
+            if (n.getTile().coins() > 0) coinNodes.add(n);
+        }
+
+        while (!s.currentNode().equals(s.exit())) {
+            checkAllNodes(s, coinNodes);
         }
-        return;
     }
 
 }
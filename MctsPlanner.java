@@ -0,0 +1,408 @@
+package diver;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import graph.GameState;
+
+/** An MctsPlanner plans the scram by Monte-Carlo tree search. A node of a tree is a <br>
+ * partial route from the start; its children are its extensions by one of its most <br>
+ * promising next stops (at most branching of them, ranked by coins per step), each <br>
+ * of which can still reach the exit in the budget. Every iteration descends the tree <br>
+ * by UCT (mean reward plus c * sqrt(ln N / n)), expands the leaf it reaches, and <br>
+ * finishes the route with a random rollout: each step takes the best, second or <br>
+ * third stop by coins per step, with probabilities 1/2, 3/10 and 1/5. The reward is <br>
+ * the route's coins over the most coins seen so far.
+ *
+ * Rollouts use the key-distance table and per-tree arrays only: they allocate <br>
+ * nothing. Trees grow in arrays too, so an expansion allocates only when they are full.
+ *
+ * The search is root-parallel: each of several trees runs on a ForkJoinPool with its <br>
+ * own seed, and the visit counts of the root's children are summed over the trees. <br>
+ * The answer is the best route any rollout completed (this is a one-player game, so <br>
+ * the best route seen is worth more than the most-visited one); of equally good <br>
+ * ones, that whose first stop has the most visits in all is taken. The search stops <br>
+ * at the deadline, at a fraction of GameState.SCRAM_TIMEOUT, or when each tree has <br>
+ * done its number of rollouts, whichever is first. With a rollout limit and no <br>
+ * time limit, a plan depends only on its inputs and the seed. */
+public class MctsPlanner implements ScramPlanner {
+
+    /** The most time a plan takes: a twentieth of the scram's time limit. */
+    public static final long MAX_NANOS= TimeUnit.SECONDS.toNanos(GameState.SCRAM_TIMEOUT) / 20;
+
+    /** The default number of children of a node. */
+    public static final int DEFAULT_BRANCHING= 8;
+
+    /** The default exploration constant of UCT. */
+    public static final double DEFAULT_EXPLORATION= 0.3;
+
+    /** The rollout limit that stands for "no limit". */
+    public static final long UNLIMITED= Long.MAX_VALUE;
+
+    private final int trees;
+    private final int branching;
+    private final double exploration;
+    private final long maxRollouts;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    /** The statistics of the last plan (null before the first). */
+    private volatile Stats lastStats;
+
+    /** Constructor: a planner with one tree per thread of the common ForkJoinPool, <br>
+     * the default branching and exploration, no rollout limit, and seed 0. */
+    public MctsPlanner() {
+        this(ForkJoinPool.commonPool().getParallelism(), DEFAULT_BRANCHING, DEFAULT_EXPLORATION,
+            UNLIMITED, 0, ForkJoinPool.commonPool());
+    }
+
+    /** Constructor: a planner that grows trees trees on pool, with branching children <br>
+     * per node and exploration constant exploration, stopping each tree after <br>
+     * maxRollouts rollouts; tree t uses seed seed + t. <br>
+     * Precondition: trees, branching and maxRollouts are at least 1, exploration >= 0. */
+    public MctsPlanner(int trees, int branching, double exploration, long maxRollouts, long seed,
+        ForkJoinPool pool) {
+        this.trees= trees;
+        this.branching= branching;
+        this.exploration= exploration;
+        this.maxRollouts= maxRollouts;
+        this.seed= seed;
+        this.pool= pool;
+    }
+
+    /** Return the statistics of the last plan (null if there has been none). */
+    public Stats lastStats() {
+        return lastStats;
+    }
+
+    @Override
+    public CoinRoute plan(CoinDistanceMatrix m, int budget, long deadline) {
+        long start= System.nanoTime();
+        long stop= Math.min(deadline, start + MAX_NANOS);
+        Problem p= new Problem(m, budget);
+        if (p.d[CoinDistanceMatrix.START][CoinDistanceMatrix.EXIT] > budget) {
+            return new CoinRoute(m, new int[0]);
+        }
+        Tree[] ts= new Tree[trees];
+        pool.submit(() -> IntStream.range(0, trees).parallel().forEach((t) -> {
+            ts[t]= new Tree(p, new Random(seed + t));
+            ts[t].search(stop);
+        })).join();
+        long nanos= System.nanoTime() - start;
+
+        // sum the visits of the root's children, which are the same in every tree
+        int[] visits= new int[m.size()];
+        long rollouts= 0;
+        for (Tree t : ts) {
+            rollouts+= t.rollouts;
+            for (int c= t.first[0]; c < t.first[0] + t.count[0]; c++ ) {
+                visits[t.action[c]]+= t.visits[c];
+            }
+        }
+        Tree best= ts[0];
+        for (Tree t : ts) {
+            if (t.bestValue > best.bestValue || t.bestValue == best.bestValue &&
+                (t.bestLength < best.bestLength || t.bestLength == best.bestLength &&
+                    firstVisits(t, visits) > firstVisits(best, visits))) {
+                best= t;
+            }
+        }
+        int top= -1;
+        for (int k= 0; k < visits.length; k++ ) {
+            if (visits[k] > 0 && (top == -1 || visits[k] > visits[top])) top= k;
+        }
+        lastStats= new Stats(trees, rollouts, nanos, top, top == -1 ? 0 : visits[top]);
+        return new CoinRoute(m, best.bestSeq, best.bestLen);
+    }
+
+    /** Return the summed visits of the first stop of t's best route (0 if it has none). */
+    private static int firstVisits(Tree t, int[] visits) {
+        return t.bestLen == 0 ? 0 : visits[t.bestSeq[0]];
+    }
+
+    @Override
+    public String toString() {
+        return "MctsPlanner[" + trees + " trees, branching " + branching + ", c " + exploration +
+            ", seed " + seed + "]";
+    }
+
+    /** An instance holds the statistics of one plan. */
+    public static final class Stats {
+        private final int trees;
+        private final long rollouts;
+        private final long nanos;
+        private final int topFirst;
+        private final int topVisits;
+
+        Stats(int trees, long rollouts, long nanos, int topFirst, int topVisits) {
+            this.trees= trees;
+            this.rollouts= rollouts;
+            this.nanos= nanos;
+            this.topFirst= topFirst;
+            this.topVisits= topVisits;
+        }
+
+        /** Return the number of rollouts, over all trees. */
+        public long rollouts() {
+            return rollouts;
+        }
+
+        /** Return the time the plan took, in nanoseconds. */
+        public long nanos() {
+            return nanos;
+        }
+
+        /** Return the rollouts per second, over all trees. */
+        public double rolloutsPerSecond() {
+            return nanos == 0 ? 0 : rollouts * 1e9 / nanos;
+        }
+
+        /** Return the first stop with the most visits over all trees (-1 if none). */
+        public int topFirstStop() {
+            return topFirst;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d trees, %d rollouts in %.1f ms (%.0f/s), top first stop %d " +
+                "with %d visits", trees, rollouts, nanos / 1e6, rolloutsPerSecond(), topFirst,
+                topVisits);
+        }
+    }
+
+    /** An instance holds what every tree of a plan reads: the distances between the <br>
+     * keys, their coins, and the keys worth visiting. */
+    private static final class Problem {
+        final int[][] d;
+        final int[] coins;
+        final int budget;
+        /** The coin keys that some route within the budget visits <br>
+         * (CoinDistanceMatrix.candidates). */
+        final int[] cand;
+
+        Problem(CoinDistanceMatrix m, int budget) {
+            this.budget= budget;
+            d= m.keyDistances();
+            coins= new int[m.size()];
+            for (int k= 2; k < m.size(); k++ ) {
+                coins[k]= m.coins(k);
+            }
+            cand= m.candidates(budget);
+        }
+    }
+
+    /** An instance is one search tree with its scratch arrays. Node 0 is the root (the <br>
+     * empty route). Node x was reached by stop action[x]; its children, once it is <br>
+     * expanded, are nodes first[x]..first[x]+count[x]-1 (first[x] = -1 before). */
+    private final class Tree {
+        private final Problem p;
+        private final Random rand;
+
+        private int[] action= new int[1024];
+        private int[] first= new int[1024];
+        private int[] count= new int[1024];
+        private int[] visits= new int[1024];
+        private double[] total= new double[1024];
+        private int nodes;
+
+        /** marked[k] == epoch iff key k is on the route of the current iteration. */
+        private final int[] marked;
+        private int epoch;
+
+        /** The nodes descended through in the current iteration, and the route of the <br>
+         * current iteration, stops seq[0..len-1]. */
+        private final int[] path;
+        private final int[] seq;
+        private int len;
+
+        /** The best route completed so far: bestSeq[0..bestLen-1], with its coins and <br>
+         * length (to the exit). */
+        private final int[] bestSeq;
+        private int bestLen;
+        private int bestValue= -1;
+        private int bestLength;
+
+        private long rollouts;
+
+        Tree(Problem p, Random rand) {
+            this.p= p;
+            this.rand= rand;
+            int size= p.coins.length;
+            marked= new int[size];
+            path= new int[size + 1];
+            seq= new int[size];
+            bestSeq= new int[size];
+            nodes= 1;
+            first[0]= -1;
+            action[0]= CoinDistanceMatrix.START;
+        }
+
+        /** Run iterations until stop (a System.nanoTime() value) or the rollout limit. */
+        void search(long stop) {
+            while (rollouts < maxRollouts && System.nanoTime() < stop) {
+                iterate();
+            }
+        }
+
+        /** Select, expand, roll out and back up once. */
+        private void iterate() {
+            epoch++ ;
+            len= 0;
+            int at= CoinDistanceMatrix.START;
+            int used= 0;
+            int value= 0;
+            int x= 0;
+            int depth= 0;
+            path[depth++ ]= 0;
+            while (true) {
+                if (first[x] == -1) {
+                    if (visits[x] == 0 && x != 0) break;
+                    expand(x, at, used);
+                }
+                if (count[x] == 0) break;
+                x= select(x);
+                int k= action[x];
+                marked[k]= epoch;
+                seq[len++ ]= k;
+                used+= p.d[at][k];
+                value+= p.coins[k];
+                at= k;
+                path[depth++ ]= x;
+            }
+
+            // rollout
+            while (true) {
+                int slack= p.budget - used;
+                int b1= -1;
+                int b2= -1;
+                int b3= -1;
+                double r1= -1;
+                double r2= -1;
+                double r3= -1;
+                for (int k : p.cand) {
+                    if (marked[k] == epoch) continue;
+                    int dk= p.d[at][k];
+                    if (dk == CoinDistanceMatrix.INF ||
+                        (long) dk + p.d[k][CoinDistanceMatrix.EXIT] > slack) {
+                        continue;
+                    }
+                    double r= p.coins[k] / (dk + 1.0);
+                    // keep b1, b2, b3: the three best stops, with ratios r1 >= r2 >= r3
+                    if (r > r3) {
+                        b3= k;
+                        r3= r;
+                    }
+                    if (r3 > r2) {
+                        int t= b2;
+                        b2= b3;
+                        b3= t;
+                        double tr= r2;
+                        r2= r3;
+                        r3= tr;
+                    }
+                    if (r2 > r1) {
+                        int t= b1;
+                        b1= b2;
+                        b2= t;
+                        double tr= r1;
+                        r1= r2;
+                        r2= tr;
+                    }
+                }
+                if (b1 == -1) break;
+                double u= rand.nextDouble();
+                int k= u < 0.5 || b2 == -1 ? b1 : u < 0.8 || b3 == -1 ? b2 : b3;
+                marked[k]= epoch;
+                seq[len++ ]= k;
+                used+= p.d[at][k];
+                value+= p.coins[k];
+                at= k;
+            }
+            rollouts++ ;
+
+            int length= used + p.d[at][CoinDistanceMatrix.EXIT];
+            if (value > bestValue || value == bestValue && length < bestLength) {
+                System.arraycopy(seq, 0, bestSeq, 0, len);
+                bestLen= len;
+                bestValue= value;
+                bestLength= length;
+            }
+            double reward= bestValue == 0 ? 0 : (double) value / bestValue;
+            for (int i= 0; i < depth; i++ ) {
+                visits[path[i]]++ ;
+                total[path[i]]+= reward;
+            }
+        }
+
+        /** Return the child of x to descend to: an unvisited one if there is one (the <br>
+         * most promising first), else the one of highest UCT value. */
+        private int select(int x) {
+            double logN= Math.log(visits[x]);
+            int best= -1;
+            double bestU= -1;
+            for (int c= first[x]; c < first[x] + count[x]; c++ ) {
+                if (visits[c] == 0) return c;
+                double u= total[c] / visits[c] + exploration * Math.sqrt(logN / visits[c]);
+                if (u > bestU) {
+                    bestU= u;
+                    best= c;
+                }
+            }
+            return best;
+        }
+
+        /** Give node x, whose route ends at key at after used steps (its stops are <br>
+         * marked), its children: its best next stops by coins per step that can still <br>
+         * get out, best first. */
+        private void expand(int x, int at, int used) {
+            if (nodes + branching > action.length) grow();
+            int slack= p.budget - used;
+            int c0= nodes;
+            int n= 0;
+            for (int k : p.cand) {
+                if (marked[k] == epoch) continue;
+                int dk= p.d[at][k];
+                if (dk == CoinDistanceMatrix.INF ||
+                    (long) dk + p.d[k][CoinDistanceMatrix.EXIT] > slack) {
+                    continue;
+                }
+                double r= p.coins[k] / (dk + 1.0);
+                if (n == branching && r <= ratio(at, action[c0 + n - 1])) continue;
+                int i= n < branching ? n++ : n - 1;
+                // insertion step: shift worse children down to make room at i
+                while (i > 0 && r > ratio(at, action[c0 + i - 1])) {
+                    action[c0 + i]= action[c0 + i - 1];
+                    i-- ;
+                }
+                action[c0 + i]= k;
+            }
+            for (int c= c0; c < c0 + n; c++ ) {
+                first[c]= -1;
+                count[c]= 0;
+                visits[c]= 0;
+                total[c]= 0;
+            }
+            first[x]= c0;
+            count[x]= n;
+            nodes+= n;
+        }
+
+        /** Return the coins per step of going from key at to key k. */
+        private double ratio(int at, int k) {
+            return p.coins[k] / (p.d[at][k] + 1.0);
+        }
+
+        /** Double the node arrays. */
+        private void grow() {
+            int n= 2 * action.length;
+            action= Arrays.copyOf(action, n);
+            first= Arrays.copyOf(first, n);
+            count= Arrays.copyOf(count, n);
+            visits= Arrays.copyOf(visits, n);
+            total= Arrays.copyOf(total, n);
+        }
+    }
+}
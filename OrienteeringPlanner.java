@@ -0,0 +1,285 @@
+package diver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** An OrienteeringPlanner plans the scram as an orienteering problem: collect the most <br>
+ * coins on a walk from the start to the exit whose length is at most the budget. <br>
+ * It is an anytime heuristic over a CoinDistanceMatrix.
+ *
+ * It first builds a route by insertion: of all ways to put one more coin key between <br>
+ * two consecutive stops, it takes the one with the most coins per added step that <br>
+ * still fits in the budget, until none fits. It then shortens the route by moving <br>
+ * each stop to its cheapest place, which frees steps for more insertions. <br>
+ * Then, until the deadline or until many rounds in a row bring nothing better, it <br>
+ * ruins the best route (drops some of its stops), rebuilds it by insertion with <br>
+ * noisy scores and by moving stops, and keeps the result if it is better. Every <br>
+ * route it holds fits in the budget, so its best-so-far route is always an answer.
+ *
+ * Equal scores are broken by key, and the only randomness comes from the seed, <br>
+ * so a plan depends only on the matrix, the budget, the seed, and when it stops. */
+public class OrienteeringPlanner implements ScramPlanner {
+
+    /** The default number of rounds in a row without improvement that end a search. */
+    public static final int DEFAULT_PATIENCE= 2000;
+
+    /** While a route is rebuilt, each insertion score is multiplied by a random <br>
+     * factor in 1..1+NOISE, so that rounds try different routes. */
+    private static final double NOISE= 0.3;
+
+    /** The seed of each search's random numbers. */
+    private final long seed;
+
+    /** The number of rounds in a row without improvement that end a search. */
+    private final int patience;
+
+    /** Constructor: a planner with seed 0 and the default patience. */
+    public OrienteeringPlanner() {
+        this(0, DEFAULT_PATIENCE);
+    }
+
+    /** Constructor: a planner whose searches use seed seed and stop after patience <br>
+     * rounds in a row without improvement (or at the deadline, if sooner). <br>
+     * Precondition: patience >= 0. */
+    public OrienteeringPlanner(long seed, int patience) {
+        this.seed= seed;
+        this.patience= patience;
+    }
+
+    @Override
+    public CoinRoute plan(CoinDistanceMatrix m, int budget, long deadline) {
+        return new Search(m, budget, new Random(seed)).run(deadline, patience);
+    }
+
+    @Override
+    public String toString() {
+        return "OrienteeringPlanner[seed " + seed + ", patience " + patience + "]";
+    }
+
+    /** An instance is the state of one search. */
+    private static final class Search {
+
+        /** The matrix planned over, the distances between its keys, and their coins. */
+        private final CoinDistanceMatrix m;
+        private final int[][] d;
+        private final int[] coins;
+
+        /** The most steps a route may take. */
+        private final int budget;
+
+        private final Random rand;
+
+        /** The coin keys that some route within the budget visits (see <br>
+         * CoinDistanceMatrix.candidates): the others are never looked at. */
+        private final int[] cand;
+
+        /** The route being worked on is seq[0..len-1], where seq[0] = START and <br>
+         * seq[len-1] = EXIT; in[k] is true iff key k is on it. length is its length, <br>
+         * at most budget, and value the coins on its stops. */
+        private final int[] seq;
+        private int len;
+        private final boolean[] in;
+        private int length;
+        private int value;
+
+        /** The best route so far, in the same form. */
+        private final int[] bestSeq;
+        private int bestLen;
+        private int bestLength;
+        private int bestValue;
+
+        /** Constructor: a search in m for routes of length at most budget, using rand. <br>
+         * Its route starts out empty. */
+        Search(CoinDistanceMatrix m, int budget, Random rand) {
+            this.m= m;
+            this.budget= budget;
+            this.rand= rand;
+            int size= m.size();
+            d= m.keyDistances();
+            coins= new int[size];
+            for (int k= 2; k < size; k++ ) {
+                coins[k]= m.coins(k);
+            }
+            cand= m.candidates(budget);
+            seq= new int[size];
+            in= new boolean[size];
+            bestSeq= new int[size];
+            seq[0]= CoinDistanceMatrix.START;
+            seq[1]= CoinDistanceMatrix.EXIT;
+            len= 2;
+            length= d[CoinDistanceMatrix.START][CoinDistanceMatrix.EXIT];
+            save();
+        }
+
+        /** Search until deadline (a System.nanoTime() value) or until patience rounds <br>
+         * in a row bring no better route, and return the best route. */
+        CoinRoute run(long deadline, int patience) {
+            if (length > budget) return new CoinRoute(m, new int[0]);
+            insert(false);
+            relocate();
+            insert(false);
+            save();
+            for (int idle= 0; idle < patience && System.nanoTime() < deadline; idle++ ) {
+                restore();
+                ruin();
+                insert(true);
+                relocate();
+                insert(false);
+                if (value > bestValue || value == bestValue && length < bestLength) {
+                    save();
+                    idle= -1;
+                }
+            }
+            return new CoinRoute(m, Arrays.copyOfRange(bestSeq, 1, bestLen - 1));
+        }
+
+        /** Return the steps that putting key k just before stop i of the route would add <br>
+         * (INF if k cannot be reached from one of its neighbors). Precondition: 0 < i < len. */
+        private int addCost(int k, int i) {
+            int a= seq[i - 1];
+            int b= seq[i];
+            if (d[a][k] == CoinDistanceMatrix.INF || d[k][b] == CoinDistanceMatrix.INF) {
+                return CoinDistanceMatrix.INF;
+            }
+            return d[a][k] + d[k][b] - d[a][b];
+        }
+
+        /** Put candidates into the route while one fits, each time the one with the most <br>
+         * coins per added step, at its cheapest place. If noisy, scores are perturbed. */
+        private void insert(boolean noisy) {
+            while (true) {
+                int slack= budget - length;
+                double bestScore= -1;
+                int bk= -1;
+                int bi= -1;
+                int bAdd= 0;
+                for (int c= 0; c < cand.length; c++ ) {
+                    int k= cand[c];
+                    if (in[k]) continue;
+                    // the cheapest place for k
+                    int add= CoinDistanceMatrix.INF;
+                    int at= -1;
+                    for (int i= 1; i < len; i++ ) {
+                        int a= addCost(k, i);
+                        if (a < add) {
+                            add= a;
+                            at= i;
+                        }
+                    }
+                    if (add > slack) continue;
+                    double score= coins[k] / (add + 1.0);
+                    if (noisy) score*= 1 + NOISE * rand.nextDouble();
+                    if (score > bestScore) {
+                        bestScore= score;
+                        bk= k;
+                        bi= at;
+                        bAdd= add;
+                    }
+                }
+                if (bk == -1) return;
+                insertAt(bk, bi, bAdd);
+            }
+        }
+
+        /** Move stops of the route to their cheapest places while that shortens it. */
+        private void relocate() {
+            boolean moved= true;
+            while (moved) {
+                moved= false;
+                for (int i= 1; i < len - 1; i++ ) {
+                    int k= seq[i];
+                    int gain= d[seq[i - 1]][k] + d[k][seq[i + 1]] - d[seq[i - 1]][seq[i + 1]];
+                    removeAt(i, gain);
+                    // i itself is a place that costs gain; look for a cheaper one
+                    int add= gain;
+                    int at= i;
+                    for (int j= 1; j < len; j++ ) {
+                        int a= addCost(k, j);
+                        if (a < add) {
+                            add= a;
+                            at= j;
+                        }
+                    }
+                    insertAt(k, at, add);
+                    if (add < gain) moved= true;
+                }
+            }
+        }
+
+        /** Drop some stops of the route: a run of consecutive ones, or (half the time) <br>
+         * as many scattered ones. At most a quarter of the stops go, and at least one. */
+        private void ruin() {
+            int stops= len - 2;
+            if (stops == 0) return;
+            int r= 1 + rand.nextInt(Math.max(1, stops / 4));
+            if (rand.nextBoolean()) {
+                int from= 1 + rand.nextInt(stops - r + 1);
+                for (int i= from; i < from + r; i++ ) {
+                    in[seq[i]]= false;
+                }
+                System.arraycopy(seq, from + r, seq, from, len - from - r);
+                len-= r;
+            } else {
+                for (int j= 0; j < r; j++ ) {
+                    int i= 1 + rand.nextInt(len - 2);
+                    in[seq[i]]= false;
+                    System.arraycopy(seq, i + 1, seq, i, len - i - 1);
+                    len-- ;
+                }
+            }
+            measure();
+        }
+
+        /** Put key k just before stop i of the route, which adds add steps. */
+        private void insertAt(int k, int i, int add) {
+            System.arraycopy(seq, i, seq, i + 1, len - i);
+            seq[i]= k;
+            len++ ;
+            in[k]= true;
+            length+= add;
+            value+= coins[k];
+        }
+
+        /** Take stop i out of the route, which saves gain steps. */
+        private void removeAt(int i, int gain) {
+            int k= seq[i];
+            System.arraycopy(seq, i + 1, seq, i, len - i - 1);
+            len-- ;
+            in[k]= false;
+            length-= gain;
+            value-= coins[k];
+        }
+
+        /** Recompute length and value from the route. */
+        private void measure() {
+            length= 0;
+            value= 0;
+            for (int i= 1; i < len; i++ ) {
+                length+= d[seq[i - 1]][seq[i]];
+                value+= coins[seq[i]];
+            }
+        }
+
+        /** Make the route the best so far. */
+        private void save() {
+            System.arraycopy(seq, 0, bestSeq, 0, len);
+            bestLen= len;
+            bestLength= length;
+            bestValue= value;
+        }
+
+        /** Make the best route so far the route being worked on. */
+        private void restore() {
+            for (int i= 1; i < len - 1; i++ ) {
+                in[seq[i]]= false;
+            }
+            System.arraycopy(bestSeq, 0, seq, 0, bestLen);
+            len= bestLen;
+            for (int i= 1; i < len - 1; i++ ) {
+                in[seq[i]]= true;
+            }
+            length= bestLength;
+            value= bestValue;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package diver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import graph.ContractionHierarchy;
+import graph.Node;
+import graph.QueueKind;
+import graph.Sewers;
+
+/** Benchmarks for the shortest-path engines used by McDiver. <br>
+ * Run as: java diver.PathBenchmark [section ...] <br>
+ * where a section is one of: queues, astar, bidirectional, ch, cache, dynamic, planners. <br>
+ * With no arguments, every section is run. <br>
+ * Timings are wall-clock medians over several rounds after a warm-up, on sewers <br>
+ * generated from a fixed seed: the largest game size (25x40) and oversized ones, <br>
+ * and for the planner section also a mid-sized game (12x20). */
+public class PathBenchmark {
+
+    /** The grid sizes (rows, columns) to benchmark on. */
+    private static final int[][] SIZES= { { 25, 40 }, { 100, 160 }, { 250, 400 } };
+
+    /** The grid sizes for the contraction-hierarchy section, which is about sewers <br>
+     * much larger than the game's. */
+    private static final int[][] CH_SIZES= { { 25, 40 }, { 100, 160 }, { 250, 400 }, { 500, 800 } };
+
+    /** The grid sizes for the planner section: a mid-sized game, the game's largest, <br>
+     * and an oversized one. */
+    private static final int[][] PLAN_SIZES= { { 12, 20 }, { 25, 40 }, { 50, 80 } };
+
+    /** The seed all sewers and queries are generated from. */
+    private static final long SEED= 2110;
+
+    /** The number of point-to-point queries per timed round. */
+    private static final int QUERIES= 200;
+
+    /** The number of timed rounds (the median is reported). */
+    private static final int ROUNDS= 7;
+
+    /** Keeps the JIT from discarding the results of timed work. */
+    private static long sink;
+
+    /** Run the sections named in args, or all of them if there are none. */
+    public static void main(String[] args) {
+        List<String> sections= List.of(args);
+        if (sections.isEmpty() || sections.contains("queues")) queues();
+        if (sections.isEmpty() || sections.contains("astar")) astar();
+        if (sections.isEmpty() || sections.contains("bidirectional")) bidirectional();
+        if (sections.isEmpty() || sections.contains("ch")) ch();
+        if (sections.isEmpty() || sections.contains("cache")) cache();
+        if (sections.isEmpty() || sections.contains("dynamic")) dynamic();
+        if (sections.isEmpty() || sections.contains("planners")) planners();
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    /** Compare the frontier queues A6.shortestPath can use, on scram sewers (edge <br>
+     * lengths 1..MAX_EDGE_WEIGHT) and seek sewers (all edge lengths 1). */
+    static void queues() {
+        System.out.println("== frontier queues: " + QUERIES + " shortest-path queries ==");
+        for (int[] rc : SIZES) {
+            for (boolean scram : new boolean[] { true, false }) {
+                Sewers sw= scram ? scramSewer(rc[0], rc[1]) : seekSewer(rc[0], rc[1]);
+                Node[][] q= queries(sw, QUERIES);
+                double base= 0;
+                for (QueueKind k : QueueKind.values()) {
+                    double ms= median(() -> {
+                        for (Node[] st : q) sink+= A6.shortestPath(st[0], st[1], k).size();
+                    });
+                    if (k == QueueKind.BINARY_HEAP) base= ms;
+                    report((scram ? "scram " : "seek  ") + rc[0] + "x" + rc[1], k.name(), ms, base);
+                }
+            }
+        }
+    }
+
+    /** Compare Dijkstra with A* (zero and Manhattan heuristics) on point-to-point <br>
+     * queries: time, and nodes settled per query. */
+    static void astar() {
+        System.out.println("== A*: " + QUERIES + " shortest-path queries ==");
+        for (int[] rc : SIZES) {
+            for (boolean scram : new boolean[] { true, false }) {
+                Sewers sw= scram ? scramSewer(rc[0], rc[1]) : seekSewer(rc[0], rc[1]);
+                Node[][] q= queries(sw, QUERIES);
+                String what= (scram ? "scram " : "seek  ") + rc[0] + "x" + rc[1];
+                double base= timeAndCount(what, "dijkstra", 0, () -> {
+                    for (Node[] st : q) sink+= A6.shortestPath(st[0], st[1]).size();
+                });
+                timeAndCount(what, "A* zero", base, () -> {
+                    for (Node[] st : q) {
+                        sink+= A6.shortestPathAStar(st[0], st[1], A6.Heuristic.ZERO).size();
+                    }
+                });
+                timeAndCount(what, "A* manhattan", base, () -> {
+                    for (Node[] st : q) {
+                        sink+= A6.shortestPathAStar(st[0], st[1], A6.Heuristic.MANHATTAN).size();
+                    }
+                });
+            }
+        }
+    }
+
+    /** Compare unidirectional with bidirectional Dijkstra on point-to-point queries. */
+    static void bidirectional() {
+        System.out.println("== bidirectional Dijkstra: " + QUERIES + " shortest-path queries ==");
+        for (int[] rc : SIZES) {
+            for (boolean scram : new boolean[] { true, false }) {
+                Sewers sw= scram ? scramSewer(rc[0], rc[1]) : seekSewer(rc[0], rc[1]);
+                Node[][] q= queries(sw, QUERIES);
+                String what= (scram ? "scram " : "seek  ") + rc[0] + "x" + rc[1];
+                double base= timeAndCount(what, "dijkstra", 0, () -> {
+                    for (Node[] st : q) sink+= A6.shortestPath(st[0], st[1]).size();
+                });
+                timeAndCount(what, "bidirectional", base, () -> {
+                    for (Node[] st : q) sink+= A6.shortestPathBidirectional(st[0], st[1]).size();
+                });
+            }
+        }
+    }
+
+    /** Report the time to build a contraction hierarchy of scram sewers, and compare <br>
+     * its queries (with the paths unpacked) against Dijkstra and bidirectional Dijkstra. */
+    static void ch() {
+        System.out.println("== contraction hierarchies: " + QUERIES + " shortest-path queries ==");
+        for (int[] rc : CH_SIZES) {
+            Sewers sw= scramSewer(rc[0], rc[1]);
+            Node[][] q= queries(sw, QUERIES);
+            String what= "scram " + rc[0] + "x" + rc[1];
+            long start= System.nanoTime();
+            ContractionHierarchy ch= new ContractionHierarchy(sw);
+            double build= (System.nanoTime() - start) / 1e6;
+            System.out.printf("%-16s %-16s %9.2f ms   (%d nodes, %d shortcuts)%n", what,
+                "preprocess", build, sw.csr().size(), ch.shortcutCount());
+
+            double base= median(() -> {
+                for (Node[] st : q) sink+= A6.shortestPath(st[0], st[1]).size();
+            });
+            report(what, "dijkstra", base, base);
+            double ms= median(() -> {
+                for (Node[] st : q) sink+= A6.shortestPathBidirectional(st[0], st[1]).size();
+            });
+            report(what, "bidirectional", ms, base);
+            ms= median(() -> {
+                for (Node[] st : q) sink+= A6.shortestPath(ch, st[0], st[1]).size();
+            });
+            report(what, "ch", ms, base);
+            ms= median(() -> {
+                for (Node[] st : q) sink+= ch.distance(st[0].index(), st[1].index());
+            });
+            report(what, "ch distance", ms, base);
+        }
+    }
+
+    /** Compare A6.shortestPath without a cache, with one big enough for every result, <br>
+     * and with one that holds a quarter of them, on a stream of queries that repeats <br>
+     * a pool of QUERIES pairs in random order (as a planner re-asking questions does). */
+    static void cache() {
+        System.out.println("== path cache: " + 10 * QUERIES + " queries over " + QUERIES +
+            " distinct pairs ==");
+        for (int[] rc : SIZES) {
+            Sewers sw= scramSewer(rc[0], rc[1]);
+            Node[][] pool= queries(sw, QUERIES);
+            Random rand= new Random(SEED);
+            Node[][] q= new Node[10 * QUERIES][];
+            for (int i= 0; i < q.length; i++ ) {
+                q[i]= pool[rand.nextInt(pool.length)];
+            }
+            String what= "scram " + rc[0] + "x" + rc[1];
+            Runnable run= () -> {
+                for (Node[] st : q) sink+= A6.pathSum(A6.shortestPath(st[0], st[1]));
+            };
+
+            A6.setPathCache(null);
+            double base= median(run);
+            report(what, "no cache", base, base);
+            // a path of k nodes costs 64 + 12k bytes; size the caches from the pool
+            long all= 0;
+            for (Node[] st : pool) {
+                all+= 64 + 12 * A6.shortestPath(st[0], st[1]).size();
+            }
+            for (long bound : new long[] { 2 * all, all / 4 }) {
+                PathCache c= new PathCache(bound);
+                A6.setPathCache(c);
+                double ms= median(run);
+                report(what, bound > all ? "cache (all)" : "cache (1/4)", ms, base);
+                System.out.printf("%-16s %-16s %9.1f%% hits, %d evictions%n", "", "",
+                    100.0 * c.hits() / (c.hits() + c.misses()), c.evictions());
+            }
+            A6.setPathCache(null);
+        }
+    }
+
+    /** Compare keeping a shortest-path tree rooted at a walker, as it walks QUERIES <br>
+     * steps along shortest paths to random targets, by a full Dijkstra after every <br>
+     * step and by DynamicShortestPaths.moveRoot; and after every whole path rather <br>
+     * than every step, where moveRoot mostly falls back to a full search. */
+    static void dynamic() {
+        System.out.println("== dynamic shortest-path tree: " + QUERIES + " steps ==");
+        for (int[] rc : SIZES) {
+            for (boolean scram : new boolean[] { true, false }) {
+                Sewers sw= scram ? scramSewer(rc[0], rc[1]) : seekSewer(rc[0], rc[1]);
+                Node[][] q= queries(sw, QUERIES);
+                // the walk: steps[0] is the start; segment ends are marked in ends
+                List<Node> steps= new ArrayList<>();
+                List<Node> ends= new ArrayList<>();
+                steps.add(q[0][0]);
+                for (int i= 0; steps.size() <= QUERIES; i++ ) {
+                    List<Node> p= A6.shortestPath(steps.get(steps.size() - 1), q[i % QUERIES][1]);
+                    for (int j= 1; j < p.size() && steps.size() <= QUERIES; j++ ) {
+                        steps.add(p.get(j));
+                    }
+                    ends.add(steps.get(steps.size() - 1));
+                }
+                String what= (scram ? "scram " : "seek  ") + rc[0] + "x" + rc[1];
+
+                double base= median(() -> {
+                    for (Node v : steps) sink+= A6.distances(v)[0];
+                });
+                report(what, "full per step", base, base);
+                double ms= median(() -> {
+                    DynamicShortestPaths t= new DynamicShortestPaths(steps.get(0));
+                    for (Node v : steps) {
+                        t.moveRoot(v);
+                        sink+= t.distance(steps.get(0));
+                    }
+                });
+                report(what, "repair per step", ms, base);
+                base= median(() -> {
+                    sink+= A6.distances(steps.get(0))[0];
+                    for (Node v : ends) sink+= A6.distances(v)[0];
+                });
+                report(what, "full per path", base, base);
+                ms= median(() -> {
+                    DynamicShortestPaths t= new DynamicShortestPaths(steps.get(0));
+                    for (Node v : ends) {
+                        t.moveRoot(v);
+                        sink+= t.distance(steps.get(0));
+                    }
+                });
+                report(what, "repair per path", ms, base);
+            }
+        }
+    }
+
+    /** Compare the scram planners on scram sewers, each with McDiver.PLAN_NANOS to plan <br>
+     * and the steps a game would give: the coins of the route it plans, the route's <br>
+     * length, and the time it took; for Monte-Carlo tree search, also its rollouts <br>
+     * per second. McDiver starts the scram where the ring was: the middle, here. */
+    static void planners() {
+        System.out.println("== scram planners: " + McDiver.PLAN_NANOS / 1_000_000 + " ms each ==");
+        for (int[] rc : PLAN_SIZES) {
+            Sewers sw= scramSewer(rc[0], rc[1]);
+            Node start= sw.nodeAt(rc[0] / 2, rc[1] / 2);
+            CoinDistanceMatrix m= new CoinDistanceMatrix(start, sw.entrance(), sw.graph());
+            int budget= m.keyDistance(CoinDistanceMatrix.START, CoinDistanceMatrix.EXIT) +
+                (int) (0.3 * (Sewers.MAX_EDGE_WEIGHT + 1) * sw.numOpenTiles() / 2);
+            String what= "scram " + rc[0] + "x" + rc[1];
+            System.out.printf("%-16s %d coin nodes, %d steps%n", what, m.size() - 2, budget);
+            MctsPlanner mcts= new MctsPlanner();
+            ScramPlanner[] ps= { new OrienteeringPlanner(), new BeamSearchPlanner(),
+                new SubsetDpPlanner(), mcts };
+            for (ScramPlanner p : ps) {
+                // one untimed plan to warm up
+                p.plan(m, budget, System.nanoTime() + McDiver.PLAN_NANOS);
+                long t= System.nanoTime();
+                CoinRoute r= p.plan(m, budget, t + McDiver.PLAN_NANOS);
+                double ms= (System.nanoTime() - t) / 1e6;
+                String name= p.getClass().getSimpleName();
+                System.out.printf("%-16s %-20s %7d coins %6d steps %9.1f ms%n", "", name,
+                    r.coins(), r.length(), ms);
+            }
+            System.out.printf("%-16s %-20s %s%n", "", "", mcts.lastStats());
+        }
+    }
+
+    /** Time r (see median) and print its time, its speedup over base (itself if <br>
+     * base is 0) and the nodes it settles per query. Return its time. */
+    static double timeAndCount(String what, String how, double base, Runnable r) {
+        double ms= median(r);
+        A6.resetExpansions();
+        r.run();
+        report(what, how, ms, base == 0 ? ms : base);
+        System.out.printf("%-16s %-16s %9d settled per query%n", "", "",
+            A6.expansions() / QUERIES);
+        return ms;
+    }
+
+    /** Return a scram sewer with rows rows and cols columns, generated from SEED. */
+    static Sewers scramSewer(int rows, int cols) {
+        return Sewers.digGetOutSewer(rows, cols, rows / 2, cols / 2, new Random(SEED));
+    }
+
+    /** Return a seek sewer with rows rows and cols columns, generated from SEED. */
+    static Sewers seekSewer(int rows, int cols) {
+        return Sewers.digExploreSewer(rows, cols, new Random(SEED));
+    }
+
+    /** Return n (source, target) pairs of nodes of sw, chosen using SEED. */
+    static Node[][] queries(Sewers sw, int n) {
+        List<Node> nodes= new ArrayList<>(sw.graph());
+        nodes.sort(Comparator.comparingLong(Node::getId));
+        Random rand= new Random(SEED);
+        Node[][] q= new Node[n][];
+        for (int i= 0; i < n; i++ ) {
+            q[i]= new Node[] { nodes.get(rand.nextInt(nodes.size())),
+                nodes.get(rand.nextInt(nodes.size())) };
+        }
+        return q;
+    }
+
+    /** The minimum time spent running a benchmark before timing it, in ns. */
+    private static final long WARMUP_NANOS= 1_000_000_000L;
+
+    /** Run r repeatedly for WARMUP_NANOS to warm up, then ROUNDS more times, <br>
+     * and return the median time of those rounds in ms. */
+    static double median(Runnable r) {
+        long warm= System.nanoTime() + WARMUP_NANOS;
+        do {
+            r.run();
+        } while (System.nanoTime() < warm);
+        double[] t= new double[ROUNDS];
+        for (int i= 0; i < ROUNDS; i++ ) {
+            long start= System.nanoTime();
+            r.run();
+            t[i]= (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(t);
+        return t[ROUNDS / 2];
+    }
+
+    /** Print one result line: what was run, how, its time, and its speedup over base. */
+    static void report(String what, String how, double ms, double base) {
+        System.out.printf("%-16s %-16s %9.2f ms   x%.2f%n", what, how, ms, base / ms);
+    }
+}
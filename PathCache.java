@@ -0,0 +1,260 @@
+package diver;
+
+import graph.CsrGraph;
+import graph.Path;
+
+/** An instance is a bounded cache of shortest-path results for one graph at a time: <br>
+ * paths between pairs of nodes, and the distance fields of single nodes. A6 consults <br>
+ * it, when one is installed with A6.setPathCache, before running a search.
+ *
+ * A result is keyed by one long packing the indices of its two nodes (-1 standing <br>
+ * for "every node", for fields), and kept in an open-addressing hash table, so a <br>
+ * lookup allocates nothing. The cache holds at most maxBytes() of results, by an <br>
+ * estimate of their size; when a new result does not fit, others are evicted in <br>
+ * CLOCK order (an approximation of least-recently-used: a hand sweeps the table, <br>
+ * sparing once each result used since it last passed).
+ *
+ * The cache is scoped to one graph: asking it about another graph (the next game's <br>
+ * sewer, say) empties it first, so results never leak from one sewer to another. <br>
+ * All methods are synchronized, so a cache can be shared by threads. */
+public class PathCache {
+
+    /** The estimated size of a cached result apart from its arrays, in bytes. */
+    private static final int OVERHEAD_BYTES= 64;
+
+    /** The most bytes of results this cache holds. */
+    private final long maxBytes;
+
+    /** The graph the cached results are in (null if the cache has not been used). */
+    private CsrGraph graph;
+
+    /** Class Invariant: the table has keys.length slots, a power of 2. Slot i is in use <br>
+     * iff values[i] != null; then it holds the result values[i] (a Path or an int[]) <br>
+     * under key keys[i], estimated at cost[i] bytes, and used[i] says whether it was <br>
+     * used since the CLOCK hand last passed it. A key is in the first free-or-matching <br>
+     * slot at or after its hash slot (linear probing). At most half the slots are in use. */
+    private long[] keys;
+    private Object[] values;
+    private int[] cost;
+    private boolean[] used;
+    private int count;
+    private long bytes;
+    private int hand;
+
+    /** Counts of lookups that found a result, that did not, and evictions. */
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Constructor: an empty cache holding at most maxBytes of results. <br>
+     * Precondition: maxBytes > 0. */
+    public PathCache(long maxBytes) {
+        this.maxBytes= maxBytes;
+        allocate(16);
+    }
+
+    /** Return the key for the path from node s to node t (both indices; -1 for the <br>
+     * field of all distances from s, or to t). */
+    public static long key(int s, int t) {
+        return (long) s << 32 | t & 0xFFFFFFFFL;
+    }
+
+    /** Return the most bytes of results this cache holds. */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /** Return the estimated bytes of the results in this cache. */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /** Return the number of results in this cache. */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** Return the number of lookups that found a result. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Return the number of lookups that found none. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Return the number of results evicted to make room for others. */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /** Return the cached shortest path from node s to node t of g (indices), or null <br>
+     * if there is none. */
+    public synchronized Path path(CsrGraph g, int s, int t) {
+        return (Path) lookup(g, key(s, t));
+    }
+
+    /** Cache p as the shortest path from node s to node t of g (indices). */
+    public synchronized void putPath(CsrGraph g, int s, int t, Path p) {
+        insert(g, key(s, t), p, OVERHEAD_BYTES + 12 * p.size());
+    }
+
+    /** Return the cached distance field of key key (see key) in g, or null if there is <br>
+     * none. The array is the cache's own: do not change it. */
+    public synchronized int[] field(CsrGraph g, long key) {
+        return (int[]) lookup(g, key);
+    }
+
+    /** Cache distance field f under key key (see key) in g. The cache keeps f itself: <br>
+     * do not change it afterwards. */
+    public synchronized void putField(CsrGraph g, long key, int[] f) {
+        insert(g, key, f, OVERHEAD_BYTES + 4 * f.length);
+    }
+
+    /** Remove every result and zero the counters. */
+    public synchronized void clear() {
+        allocate(16);
+        graph= null;
+        hits= 0;
+        misses= 0;
+        evictions= 0;
+    }
+
+    /** Return the counters and occupancy of this cache. */
+    @Override
+    public synchronized String toString() {
+        return "PathCache[" + count + " results, " + bytes + "/" + maxBytes + " bytes, " + hits +
+            " hits, " + misses + " misses, " + evictions + " evictions]";
+    }
+
+    /** Make g the graph of this cache, emptying it if it held results of another graph. */
+    private void bind(CsrGraph g) {
+        if (graph != g) {
+            allocate(16);
+            graph= g;
+        }
+    }
+
+    /** Return the result under key in g (null if none), counting a hit or a miss. */
+    private Object lookup(CsrGraph g, long key) {
+        bind(g);
+        int i= find(key);
+        if (values[i] == null) {
+            misses++ ;
+            return null;
+        }
+        hits++ ;
+        used[i]= true;
+        return values[i];
+    }
+
+    /** Put result v, costing c bytes, under key in g, evicting others until it fits. <br>
+     * A result bigger than the whole cache is not kept. */
+    private void insert(CsrGraph g, long key, Object v, int c) {
+        bind(g);
+        if (c > maxBytes) return;
+        int i= find(key);
+        if (values[i] != null) {
+            bytes-= cost[i];
+            removeAt(i);
+        }
+        while (bytes + c > maxBytes) {
+            evictOne();
+        }
+        if (2 * (count + 1) > keys.length) grow();
+        i= find(key);
+        keys[i]= key;
+        values[i]= v;
+        cost[i]= c;
+        used[i]= false;
+        count++ ;
+        bytes+= c;
+    }
+
+    /** Evict one result in CLOCK order. Precondition: the cache is not empty. */
+    private void evictOne() {
+        while (true) {
+            hand= hand & keys.length - 1;
+            if (values[hand] != null) {
+                if (!used[hand]) {
+                    bytes-= cost[hand];
+                    removeAt(hand);
+                    evictions++ ;
+                    // removeAt may have moved another result into slot hand: look again
+                    return;
+                }
+                used[hand]= false;
+            }
+            hand++ ;
+        }
+    }
+
+    /** Return the slot holding key, or the free slot where it would go. */
+    private int find(long key) {
+        int mask= keys.length - 1;
+        int i= hash(key) & mask;
+        while (values[i] != null && keys[i] != key) {
+            i= i + 1 & mask;
+        }
+        return i;
+    }
+
+    /** Empty slot i, moving later results of its probe run back so that every key <br>
+     * stays reachable from its hash slot (backward-shift deletion). */
+    private void removeAt(int i) {
+        int mask= keys.length - 1;
+        values[i]= null;
+        count-- ;
+        int hole= i;
+        for (int j= i + 1 & mask; values[j] != null; j= j + 1 & mask) {
+            int home= hash(keys[j]) & mask;
+            // the result in j may fill the hole iff its home is not in (hole, j]
+            boolean movable= hole <= j ? home <= hole || home > j : home <= hole && home > j;
+            if (movable) {
+                keys[hole]= keys[j];
+                values[hole]= values[j];
+                cost[hole]= cost[j];
+                used[hole]= used[j];
+                values[j]= null;
+                hole= j;
+            }
+        }
+    }
+
+    /** Double the table. */
+    private void grow() {
+        long[] k= keys;
+        Object[] v= values;
+        int[] c= cost;
+        boolean[] u= used;
+        allocate(2 * k.length);
+        for (int j= 0; j < k.length; j++ ) {
+            if (v[j] == null) continue;
+            int i= find(k[j]);
+            keys[i]= k[j];
+            values[i]= v[j];
+            cost[i]= c[j];
+            used[i]= u[j];
+            count++ ;
+            bytes+= c[j];
+        }
+    }
+
+    /** Make the table empty, with n slots. */
+    private void allocate(int n) {
+        keys= new long[n];
+        values= new Object[n];
+        cost= new int[n];
+        used= new boolean[n];
+        count= 0;
+        bytes= 0;
+        hand= 0;
+    }
+
+    /** Return a hash of key (a mix of all its bits, as packed indices are clustered). */
+    private static int hash(long key) {
+        long h= key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+}
@@ -0,0 +1,359 @@
+package diver;
+
+import java.util.Arrays;
+
+/** A RouteImprover improves a CoinRoute by local search, within a time limit: it makes <br>
+ * the route shorter, then spends the steps that frees on more coins, and repeats.
+ *
+ * Shortening uses two kinds of moves, each taken when it makes the route shorter: <br>
+ * 2-opt reverses a run of stops, and Or-opt moves a run of 1..3 stops, either way <br>
+ * round, to another place. Sewer edges are undirected, so distances are symmetric and <br>
+ * a reversed run has the same length. Only moves that join a stop to one of its <br>
+ * neighbors (its nearest keys) are tried, and a stop whose moves were all tried in <br>
+ * vain is not looked at again until an edge at it changes (don't-look bits).
+ *
+ * Freed steps are spent by insert moves (a coin key not on the route is put at its <br>
+ * cheapest place next to one of its neighbors, the one with the most coins per added <br>
+ * step first) and swap moves (a stop is replaced by a neighbor with more coins). No <br>
+ * move makes the route longer than the budget, and none loses coins. */
+public class RouteImprover {
+
+    /** The default number of neighbors of each key. */
+    public static final int DEFAULT_NEIGHBORS= 10;
+
+    /** The longest run of stops an Or-opt move moves. */
+    private static final int OR_OPT_MAX= 3;
+
+    private final int neighbors;
+
+    /** Constructor: an improver with DEFAULT_NEIGHBORS neighbors per key. */
+    public RouteImprover() {
+        this(DEFAULT_NEIGHBORS);
+    }
+
+    /** Constructor: an improver that tries moves toward the neighbors nearest keys <br>
+     * of each key. Precondition: neighbors >= 1. */
+    public RouteImprover(int neighbors) {
+        this.neighbors= neighbors;
+    }
+
+    /** Return route r of m improved: no longer than budget, with at least r's coins, <br>
+     * and, for as many coins, no longer than r. Stop improving when no move helps or <br>
+     * at deadline (a System.nanoTime() value). Precondition: r fits in budget. */
+    public CoinRoute improve(CoinDistanceMatrix m, CoinRoute r, int budget, long deadline) {
+        Work w= new Work(m, r, budget);
+        boolean better= true;
+        while (better && System.nanoTime() < deadline) {
+            w.shorten(deadline);
+            better= w.spend(deadline);
+        }
+        CoinRoute s= w.route();
+        return s.betterThan(r) ? s : r;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteImprover[" + neighbors + " neighbors]";
+    }
+
+    /** An instance is the state of one improvement. */
+    private final class Work {
+        private final CoinDistanceMatrix m;
+        private final int[][] d;
+        private final int[] coins;
+        private final int budget;
+
+        /** near[k][0..] are the neighbors of coin key k that a route within budget can <br>
+         * visit, nearest first (empty for keys no such route visits). */
+        private final int[][] near;
+
+        /** The route is seq[0..len-1], where seq[0] = START and seq[len-1] = EXIT; pos[k] <br>
+         * is the place of key k in it (-1 if it is not on it). length is its length. */
+        private final int[] seq;
+        private int len;
+        private final int[] pos;
+        private int length;
+
+        /** dontLook[k]: the moves at stop k were tried since an edge at it last changed. */
+        private final boolean[] dontLook;
+
+        Work(CoinDistanceMatrix m, CoinRoute r, int budget) {
+            this.m= m;
+            this.budget= budget;
+            int size= m.size();
+            d= m.keyDistances();
+            coins= new int[size];
+            for (int k= 2; k < size; k++ ) {
+                coins[k]= m.coins(k);
+            }
+            int[] cand= m.candidates(budget);
+            near= new int[size][];
+            int[] top= new int[neighbors];
+            for (int k= 0; k < size; k++ ) {
+                near[k]= new int[0];
+            }
+            for (int k : cand) {
+                // top[0..n-1]: the nearest candidates seen so far, nearest first
+                int n= 0;
+                for (int j : cand) {
+                    int dj= d[k][j];
+                    if (j == k || dj == CoinDistanceMatrix.INF) continue;
+                    if (n == neighbors && dj >= d[k][top[n - 1]]) continue;
+                    int i= n < neighbors ? n++ : n - 1;
+                    while (i > 0 && dj < d[k][top[i - 1]]) {
+                        top[i]= top[i - 1];
+                        i-- ;
+                    }
+                    top[i]= j;
+                }
+                near[k]= Arrays.copyOf(top, n);
+            }
+
+            seq= new int[size];
+            pos= new int[size];
+            Arrays.fill(pos, -1);
+            seq[0]= CoinDistanceMatrix.START;
+            for (int i= 0; i < r.size(); i++ ) {
+                seq[i + 1]= r.key(i);
+            }
+            len= r.size() + 2;
+            seq[len - 1]= CoinDistanceMatrix.EXIT;
+            for (int i= 1; i < len - 1; i++ ) {
+                pos[seq[i]]= i;
+            }
+            length= r.length();
+            dontLook= new boolean[size];
+        }
+
+        /** Return the route. */
+        CoinRoute route() {
+            return new CoinRoute(m, Arrays.copyOfRange(seq, 1, len - 1));
+        }
+
+        /** Apply 2-opt and Or-opt moves until none shortens the route or deadline. */
+        void shorten(long deadline) {
+            boolean moved= true;
+            while (moved && System.nanoTime() < deadline) {
+                moved= false;
+                for (int i= 1; i < len - 1; i++ ) {
+                    int a= seq[i];
+                    if (dontLook[a]) continue;
+                    if (twoOpt(a) || orOpt(a)) {
+                        moved= true;
+                    } else {
+                        dontLook[a]= true;
+                    }
+                }
+            }
+        }
+
+        /** Try the 2-opt moves that join stop a to a neighbor; make the first that <br>
+         * shortens the route and return true, or return false if none does. */
+        private boolean twoOpt(int a) {
+            for (int c : near[a]) {
+                int j= pos[c];
+                if (j < 0) continue;
+                int i= pos[a];
+                int lo= Math.min(i, j);
+                int hi= Math.max(i, j);
+                // new edge (a, c) as (seq[p], seq[q]) or as (seq[p+1], seq[q+1])
+                if (reverseIfShorter(lo, hi) || reverseIfShorter(lo - 1, hi - 1)) return true;
+            }
+            return false;
+        }
+
+        /** If reversing seq[p+1..q] shortens the route, do it and return true. <br>
+         * Precondition: p < q. */
+        private boolean reverseIfShorter(int p, int q) {
+            if (p < 0 || q > len - 2 || q - p < 2) return false;
+            int delta= d[seq[p]][seq[q]] + d[seq[p + 1]][seq[q + 1]] -
+                d[seq[p]][seq[p + 1]] - d[seq[q]][seq[q + 1]];
+            if (delta >= 0) return false;
+            for (int x= p + 1, y= q; x < y; x++ , y-- ) {
+                int t= seq[x];
+                seq[x]= seq[y];
+                seq[y]= t;
+            }
+            for (int x= p + 1; x <= q; x++ ) {
+                pos[seq[x]]= x;
+            }
+            length+= delta;
+            // the new edges are (p, p+1) and (q, q+1): wake all four ends
+            wake(p);
+            wake(p + 1);
+            wake(q);
+            wake(q + 1);
+            return true;
+        }
+
+        /** Try the Or-opt moves of the runs of 1..OR_OPT_MAX stops that begin at stop a <br>
+         * to a place next to a neighbor of a; make the first that shortens the route <br>
+         * and return true, or return false if none does. */
+        private boolean orOpt(int a) {
+            for (int l= 1; l <= OR_OPT_MAX; l++ ) {
+                int i= pos[a];
+                int e= i + l - 1;
+                if (e > len - 2) break;
+                int prev= seq[i - 1];
+                int next= seq[e + 1];
+                int last= seq[e];
+                int gain= d[prev][a] + d[last][next] - d[prev][next];
+                for (int c : near[a]) {
+                    int j= pos[c];
+                    if (j < 0 || j >= i - 1 && j <= e) continue;
+                    // the run goes between c and its successor, or its predecessor and c,
+                    // with a next to c
+                    int succ= seq[j + 1];
+                    int pred= seq[j - 1];
+                    if (j + 1 < i || j > e) {
+                        int add= d[c][a] + d[last][succ] - d[c][succ];
+                        if (add < gain && j + 1 != i) {
+                            moveRun(i, e, j + 1, false);
+                            length+= add - gain;
+                            return true;
+                        }
+                    }
+                    if (j - 1 < i - 1 || j - 1 > e) {
+                        int add= d[pred][last] + d[a][c] - d[pred][c];
+                        if (add < gain && j - 1 != e) {
+                            moveRun(i, e, j, true);
+                            length+= add - gain;
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Move the run seq[i..e] to just before the stop now at place t (t not in <br>
+         * i..e+1), reversed iff reversed is true. Precondition: 0 < t < len. */
+        private void moveRun(int i, int e, int t, boolean reversed) {
+            int l= e - i + 1;
+            int[] run= Arrays.copyOfRange(seq, i, e + 1);
+            wake(i - 1);
+            wake(e + 1);
+            if (t > e) {
+                System.arraycopy(seq, e + 1, seq, i, t - e - 1);
+                t-= l;
+            } else {
+                System.arraycopy(seq, t, seq, t + l, i - t);
+            }
+            for (int x= 0; x < l; x++ ) {
+                seq[t + x]= reversed ? run[l - 1 - x] : run[x];
+            }
+            int lo= Math.min(i, t);
+            int hi= Math.max(e, t + l - 1);
+            for (int x= lo; x <= hi; x++ ) {
+                pos[seq[x]]= x;
+            }
+            wake(t - 1);
+            wake(t);
+            wake(t + l - 1);
+            wake(t + l);
+        }
+
+        /** Clear the don't-look bit of the stop at place x, if it is a stop. */
+        private void wake(int x) {
+            if (x > 0 && x < len - 1) dontLook[seq[x]]= false;
+        }
+
+        /** Spend the steps the budget leaves on insert and swap moves until neither <br>
+         * helps or deadline. Return true iff some move was made. */
+        boolean spend(long deadline) {
+            boolean any= false;
+            boolean moved= true;
+            while (moved && System.nanoTime() < deadline) {
+                moved= insert() || swap();
+                any|= moved;
+            }
+            return any;
+        }
+
+        /** Put the key not on the route with the most coins per added step at its <br>
+         * cheapest place next to one of its neighbors, if one fits. Return true iff <br>
+         * a key was put in. */
+        private boolean insert() {
+            int slack= budget - length;
+            double best= -1;
+            int bk= -1;
+            int bAt= -1;
+            int bAdd= 0;
+            for (int k= 2; k < near.length; k++ ) {
+                if (pos[k] >= 0 || near[k].length == 0) continue;
+                int add= CoinDistanceMatrix.INF;
+                int at= -1;
+                for (int c : near[k]) {
+                    int j= pos[c];
+                    if (j < 0) continue;
+                    // before c, or after it
+                    int a1= d[seq[j - 1]][k] + d[k][c] - d[seq[j - 1]][c];
+                    if (a1 < add) {
+                        add= a1;
+                        at= j;
+                    }
+                    int a2= d[c][k] + d[k][seq[j + 1]] - d[c][seq[j + 1]];
+                    if (a2 < add) {
+                        add= a2;
+                        at= j + 1;
+                    }
+                }
+                if (at < 0 || add > slack) continue;
+                double score= coins[k] / (add + 1.0);
+                if (score > best) {
+                    best= score;
+                    bk= k;
+                    bAt= at;
+                    bAdd= add;
+                }
+            }
+            if (bk < 0) return false;
+            System.arraycopy(seq, bAt, seq, bAt + 1, len - bAt);
+            seq[bAt]= bk;
+            len++ ;
+            for (int x= bAt; x < len - 1; x++ ) {
+                pos[seq[x]]= x;
+            }
+            length+= bAdd;
+            wake(bAt - 1);
+            wake(bAt);
+            wake(bAt + 1);
+            return true;
+        }
+
+        /** Replace a stop by a neighbor not on the route with more coins, if that fits; <br>
+         * of all such swaps, make the one that gains the most coins. Return true iff <br>
+         * one was made. */
+        private boolean swap() {
+            int bi= -1;
+            int bk= -1;
+            int bGain= 0;
+            int bDelta= 0;
+            for (int i= 1; i < len - 1; i++ ) {
+                int a= seq[i];
+                int p= seq[i - 1];
+                int n= seq[i + 1];
+                for (int k : near[a]) {
+                    if (pos[k] >= 0 || coins[k] <= coins[a]) continue;
+                    int delta= d[p][k] + d[k][n] - d[p][a] - d[a][n];
+                    int gain= coins[k] - coins[a];
+                    if (length + delta <= budget && gain > bGain) {
+                        bi= i;
+                        bk= k;
+                        bGain= gain;
+                        bDelta= delta;
+                    }
+                }
+            }
+            if (bi < 0) return false;
+            pos[seq[bi]]= -1;
+            seq[bi]= bk;
+            pos[bk]= bi;
+            length+= bDelta;
+            wake(bi - 1);
+            wake(bi);
+            wake(bi + 1);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package diver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import graph.GameState;
+import graph.Node;
+import graph.ScramState;
+import graph.SeekState;
+import graph.SewerDiver;
+
+/** Measures how far McDiver's scram falls short of the best possible. <br>
+ * Run as: java diver.ScramGap [-d diver] [-n count] [-s seed] [-t seconds] [-l labels] <br>
+ * It plays count games (default 10) from seed (default 1; later seeds follow as in <br>
+ * GameState.main) with the SewerDiver class diver (default diver.McDiver; a name <br>
+ * without a package is looked up in diver). For each game, it records the sewer, <br>
+ * position and steps left when the scram begins and the coins the diver then <br>
+ * collects; after the game, a LabelSettingSolver with at most labels live labels <br>
+ * (default LabelSettingSolver.DEFAULT_MAX_LABELS) and seconds seconds (default 10) <br>
+ * finds the most coins a walk to the exit could have collected, or an upper bound <br>
+ * on them. It prints, per game, the score, CoinBound's bound on the coins of the <br>
+ * scram, the diver's coins, the optimum (or the solver's best route and bound), and <br>
+ * the gap. At the end it prints the mean gap over the games that reached the scram, <br>
+ * how many of those were solved to optimality, and how many games had no scram. */
+public class ScramGap {
+
+    /** Run the games described in the class comment. */
+    public static void main(String[] args) throws ReflectiveOperationException {
+        List<String> argList= List.of(args);
+        int d= argList.indexOf("-d");
+        String name= d >= 0 && d + 1 < argList.size() ? argList.get(d + 1) : "McDiver";
+        Class<?> diver= Class.forName(name.contains(".") ? name : "diver." + name);
+        int n= intArg(argList, "-n", 10);
+        long seed= longArg(argList, "-s", 1);
+        long nanos= intArg(argList, "-t", 10) * 1_000_000_000L;
+        LabelSettingSolver solver= new LabelSettingSolver(
+            intArg(argList, "-l", LabelSettingSolver.DEFAULT_MAX_LABELS),
+            ForkJoinPool.commonPool());
+
+        double gaps= 0;
+        int scrams= 0;
+        int solved= 0;
+        List<String> lines= new ArrayList<>();
+        for (int i= 0; i < n; i++ ) {
+            Recorder rec= new Recorder(
+                (SewerDiver) diver.getDeclaredConstructor().newInstance());
+            int score= GameState.runNewGame(seed, false, rec);
+            if (rec.matrix != null) {
+                LabelSettingSolver.Result r= solver.solve(rec.matrix, rec.budget,
+                    System.nanoTime() + nanos);
+                double gap= r.gap(rec.collected);
+                gaps+= gap;
+                scrams++ ;
+                if (r.optimal()) solved++ ;
+                lines.add(String.format(
+                    "seed %d: score %d, bound %d, diver %d coins, %s, gap %.1f%%", seed, score,
+                    new CoinBound(rec.matrix, rec.budget).upperBound(), rec.collected, r,
+                    100 * gap));
+            } else {
+                lines.add("seed " + seed + ": score " + score + ", no scram");
+            }
+            seed= new Random(seed).nextLong();
+        }
+        System.out.println("== scram optimality gap of " + diver.getName() + " ==");
+        for (String s : lines) System.out.println(s);
+        // a game without a scram has no gap: leave it out of the mean
+        System.out.println(String.format(
+            "mean gap %.1f%% over %d games with a scram, %d solved to optimality; " +
+                "%d without a scram",
+            scrams == 0 ? 0 : 100 * gaps / scrams, scrams, solved, n - scrams));
+    }
+
+    /** Return the int after flag in args, or def if there is none. */
+    private static int intArg(List<String> args, String flag, int def) {
+        return (int) longArg(args, flag, def);
+    }
+
+    /** Return the long after flag in args, or def if there is none. */
+    private static long longArg(List<String> args, String flag, long def) {
+        int i= args.indexOf(flag);
+        if (i < 0 || i + 1 >= args.size()) return def;
+        try {
+            return Long.parseLong(args.get(i + 1));
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /** A Recorder plays as its diver does, noting what the scram started from and <br>
+     * how many coins the diver collected in it. */
+    private static final class Recorder extends SewerDiver {
+        private final SewerDiver diver;
+
+        /** The coins to be had and the steps left when the scram began (null if it did <br>
+         * not begin), and the coins the diver then collected. */
+        CoinDistanceMatrix matrix;
+        int budget;
+        int collected;
+
+        Recorder(SewerDiver diver) {
+            this.diver= diver;
+        }
+
+        @Override
+        public void seek(SeekState state) {
+            diver.seek(state);
+        }
+
+        @Override
+        public void scram(ScramState state) {
+            Collection<Node> nodes= state.allNodes();
+            matrix= new CoinDistanceMatrix(state.currentNode(), state.exit(), nodes);
+            budget= state.stepsToGo();
+            int before= coins(nodes);
+            try {
+                diver.scram(state);
+            } finally {
+                collected= before - coins(nodes);
+            }
+        }
+
+        /** Return the coins left on nodes. */
+        private static int coins(Collection<Node> nodes) {
+            int c= 0;
+            for (Node n : nodes) c+= n.getTile().coins();
+            return c;
+        }
+    }
+}
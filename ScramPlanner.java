@@ -0,0 +1,14 @@
+package diver;
+
+/** A ScramPlanner chooses the coins McDiver picks up on his way out: given the <br>
+ * distances between the key nodes of a scram sewer and the steps he has left, it <br>
+ * returns a CoinRoute that fits in them. McDiver walks the route, then scrams. */
+public interface ScramPlanner {
+
+    /** Return a route in m whose length is at most budget, found by deadline (a <br>
+     * System.nanoTime() value). Planners that improve a route over time return the <br>
+     * best they have when the deadline passes; the empty route always fits if the <br>
+     * exit can be reached at all. <br>
+     * Precondition: m.keyDistance(START, EXIT) <= budget. */
+    CoinRoute plan(CoinDistanceMatrix m, int budget, long deadline);
+}
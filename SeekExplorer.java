@@ -0,0 +1,199 @@
+package diver;
+
+import java.util.Arrays;
+
+import graph.BufferedSeekState;
+import graph.SeekState;
+
+/** A SeekExplorer walks McDiver to the ring in the seek phase, building a map of the <br>
+ * sewer as it goes.
+ *
+ * The map holds every node McDiver has seen: those he has stood on (explored), whose <br>
+ * neighbors he knows, and those only seen as neighbors (the frontier). Each node is <br>
+ * known by its grid (Manhattan) distance to the ring, which SeekState reports. At <br>
+ * every decision McDiver, on an explored node, runs a breadth-first search over the <br>
+ * known edges and picks the frontier node f with least g(f) + h(f), where g(f) is <br>
+ * the steps to f over known edges and h(f) its distance to the ring (ties go to the <br>
+ * smaller h, then to the one the search reaches first). He then walks there by the <br>
+ * search's path, all of whose nodes but f are explored, and explores f. Unlike a <br>
+ * depth-first walk, he never retraces a corridor step by step just to back up: he goes <br>
+ * straight to the next place worth looking, over whatever part of the map is known.
+ *
+ * Everything is iterative, and nodes are numbered densely as they are seen, so the <br>
+ * map is primitive arrays and one open-addressing table from ids to numbers; nothing <br>
+ * is boxed per step. McDiver's neighbors are read into two reused buffers, without <br>
+ * allocating, when the state is a BufferedSeekState. */
+public class SeekExplorer {
+
+    /** The state explored. */
+    private final SeekState s;
+
+    /** The number of nodes seen. Node v (0 <= v < n) has id ids[v], distance h[v] to <br>
+     * the ring, and, if explored[v], neighbors adj[v][0..deg[v]-1]. */
+    private int n;
+    private long[] ids= new long[64];
+    private int[] h= new int[64];
+    private boolean[] explored= new boolean[64];
+    private int[][] adj= new int[64][];
+    private int[] deg= new int[64];
+
+    /** An open-addressing table from ids to node numbers: slot i holds id keys[i] and <br>
+     * number vals[i] - 1, or is empty if vals[i] is 0. */
+    private long[] keys= new long[128];
+    private int[] vals= new int[128];
+
+    /** For the breadth-first search: the queue, each node's parent and distance, and <br>
+     * stamp[v] == round iff node v was reached in the current search. */
+    private int[] queue= new int[64];
+    private int[] parent= new int[64];
+    private int[] g= new int[64];
+    private int[] stamp= new int[64];
+    private int round;
+
+    /** The ids and distances to the ring of McDiver's neighbors, as last read. */
+    private long[] nbrIds= new long[4];
+    private int[] nbrDist= new int[4];
+
+    /** Constructor: an explorer of s, standing where McDiver stands. */
+    public SeekExplorer(SeekState s) {
+        this.s= s;
+    }
+
+    /** Walk to the ring. Precondition: the ring is reachable. */
+    public void run() {
+        int at= see(s.currentLocation(), s.distanceToRing());
+        while (s.distanceToRing() != 0) {
+            explore(at);
+            int f= nearestFrontier(at);
+            if (f < 0) throw new IllegalStateException("SeekExplorer: the ring is unreachable");
+            // the path from at to f, read backward from f into the now idle queue
+            int len= g[f];
+            for (int v= f, i= len - 1; i >= 0; v= parent[v], i-- ) {
+                queue[i]= v;
+            }
+            for (int i= 0; i < len; i++ ) {
+                s.moveTo(ids[queue[i]]);
+            }
+            at= f;
+        }
+    }
+
+    /** Record the neighbors of explored node at, where McDiver stands. */
+    private void explore(int at) {
+        if (explored[at]) return;
+        explored[at]= true;
+        int d= lookAround();
+        int[] a= new int[d];
+        for (int i= 0; i < d; i++ ) {
+            a[i]= see(nbrIds[i], nbrDist[i]);
+        }
+        adj[at]= a;
+        deg[at]= d;
+    }
+
+    /** Put the ids and distances to the ring of McDiver's neighbors in nbrIds and <br>
+     * nbrDist, lengthening them if need be, and return how many there are. */
+    private int lookAround() {
+        int k= BufferedSeekState.neighbors(s, nbrIds, nbrDist);
+        if (k > nbrIds.length || k > nbrDist.length) {
+            nbrIds= BufferedSeekState.fit(nbrIds, k);
+            nbrDist= BufferedSeekState.fit(nbrDist, k);
+            BufferedSeekState.neighbors(s, nbrIds, nbrDist);
+        }
+        return k;
+    }
+
+    /** Return the frontier node with least steps plus distance to the ring (see the <br>
+     * class comment), with g and parent set along a shortest known path to it from <br>
+     * at; return -1 if there is none. */
+    private int nearestFrontier(int at) {
+        round++ ;
+        int head= 0;
+        int tail= 0;
+        queue[tail++ ]= at;
+        stamp[at]= round;
+        g[at]= 0;
+        int best= -1;
+        int bestScore= Integer.MAX_VALUE;
+        while (head < tail) {
+            int v= queue[head++ ];
+            // nodes further out score at least g[v]
+            if (g[v] > bestScore) break;
+            if (!explored[v]) {
+                int score= g[v] + h[v];
+                if (score < bestScore || score == bestScore && h[v] < h[best]) {
+                    best= v;
+                    bestScore= score;
+                }
+                // McDiver cannot know where a frontier node leads
+                continue;
+            }
+            for (int i= 0; i < deg[v]; i++ ) {
+                int w= adj[v][i];
+                if (stamp[w] == round) continue;
+                stamp[w]= round;
+                g[w]= g[v] + 1;
+                parent[w]= v;
+                queue[tail++ ]= w;
+            }
+        }
+        return best;
+    }
+
+    /** Return the number of the node with id id and distance dist to the ring, <br>
+     * numbering it if it is new. */
+    private int see(long id, int dist) {
+        int mask= keys.length - 1;
+        int i= (int) mix(id) & mask;
+        while (vals[i] != 0) {
+            if (keys[i] == id) return vals[i] - 1;
+            i= i + 1 & mask;
+        }
+        if (n == ids.length) grow();
+        int v= n++ ;
+        ids[v]= id;
+        h[v]= dist;
+        if (2 * n > keys.length) {
+            rehash();
+        } else {
+            keys[i]= id;
+            vals[i]= v + 1;
+        }
+        return v;
+    }
+
+    /** Double the per-node arrays. */
+    private void grow() {
+        int c= 2 * ids.length;
+        ids= Arrays.copyOf(ids, c);
+        h= Arrays.copyOf(h, c);
+        explored= Arrays.copyOf(explored, c);
+        adj= Arrays.copyOf(adj, c);
+        deg= Arrays.copyOf(deg, c);
+        queue= Arrays.copyOf(queue, c);
+        parent= Arrays.copyOf(parent, c);
+        g= Arrays.copyOf(g, c);
+        stamp= Arrays.copyOf(stamp, c);
+    }
+
+    /** Double the id table and put nodes 0..n-1 in it. */
+    private void rehash() {
+        keys= new long[2 * keys.length];
+        vals= new int[keys.length];
+        int mask= keys.length - 1;
+        for (int v= 0; v < n; v++ ) {
+            int i= (int) mix(ids[v]) & mask;
+            while (vals[i] != 0) {
+                i= i + 1 & mask;
+            }
+            keys[i]= ids[v];
+            vals[i]= v + 1;
+        }
+    }
+
+    /** Return a scrambled id, so that ids that differ only in high bits spread out. */
+    private static long mix(long id) {
+        long x= id * 0x9E3779B97F4A7C15L;
+        return x ^ x >>> 32;
+    }
+}
@@ -0,0 +1,93 @@
+package diver;
+
+import java.util.Collections;
+import java.util.List;
+
+import graph.CsrGraph;
+import graph.Node;
+import graph.NodeBitSet;
+import graph.Path;
+
+/** An instance is the result of one Dijkstra from a source node toward a set of target <br>
+ * nodes (see A6.shortestPathsTo): the distance of every node the search settled, and <br>
+ * a backpointer for each, so a shortest path to any settled node is rebuilt only when <br>
+ * it is asked for. The search stops early, once the targets it was asked for are <br>
+ * settled, so nodes farther than the last of them may not be in the tree. */
+public class ShortestPathTree {
+
+    /** The distance of a node that is not in the tree. */
+    public static final int INF= Integer.MAX_VALUE;
+
+    /** The graph the tree is in. */
+    private final CsrGraph g;
+
+    /** The root of the tree. */
+    private final Node source;
+
+    /** For a settled node with index i, dist[i] is the length of a shortest path from <br>
+     * source to it, parent[i] the index of the node before it (-1 for source), and <br>
+     * coins[i] the value of the coins on that path when it was settled. */
+    private final int[] dist;
+    private final int[] parent;
+    private final int[] coins;
+
+    /** The nodes the search settled. */
+    private final NodeBitSet settled;
+
+    /** The targets the search settled, nearest first. */
+    private final List<Node> targets;
+
+    /** Constructor: the tree of a search from source in g that settled the nodes in <br>
+     * settled, with distances dist, backpointers parent and path coins coins, and <br>
+     * settled targets targets (nearest first). */
+    /* package */ ShortestPathTree(CsrGraph g, Node source, int[] dist, int[] parent,
+        int[] coins, NodeBitSet settled, List<Node> targets) {
+        this.g= g;
+        this.source= source;
+        this.dist= dist;
+        this.parent= parent;
+        this.coins= coins;
+        this.settled= settled;
+        this.targets= Collections.unmodifiableList(targets);
+    }
+
+    /** Return the root of this tree. */
+    public Node source() {
+        return source;
+    }
+
+    /** Return the targets that were settled, nearest first. */
+    public List<Node> targets() {
+        return targets;
+    }
+
+    /** Return true iff n is in this tree, i.e. its distance from source is known. */
+    public boolean contains(Node n) {
+        int i= g.indexOf(n);
+        return i >= 0 && settled.contains(i);
+    }
+
+    /** Return the length of a shortest path from source to n (INF if n is not in <br>
+     * this tree: it is unreachable, or the search stopped before reaching it). */
+    public int distance(Node n) {
+        return contains(n) ? dist[n.index()] : INF;
+    }
+
+    /** Return the value of the coins on the path pathTo(n) when the search settled n <br>
+     * (0 if n is not in this tree). This takes constant time: the path is not built. */
+    public int coins(Node n) {
+        return contains(n) ? coins[n.index()] : 0;
+    }
+
+    /** Return a shortest path from source to n ---or the empty list if n is not in <br>
+     * this tree. */
+    public Path pathTo(Node n) {
+        if (!contains(n)) return Path.empty(g);
+        int k= 0;
+        for (int p= n.index(); p != -1; p= parent[p]) k++ ;
+        int[] nodes= new int[k];
+        // invariant: nodes[k..] holds the nodes from p's successor to n, in order
+        for (int p= n.index(); p != -1; p= parent[p]) nodes[--k]= p;
+        return new Path(g, nodes);
+    }
+}
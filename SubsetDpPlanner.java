@@ -0,0 +1,204 @@
+package diver;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/** A SubsetDpPlanner plans the scram exactly when there are few coins: a dynamic program <br>
+ * over subsets of coin keys (Held-Karp) gives, for each set S of keys and each j in S, <br>
+ * the length of a shortest walk from the start that visits exactly S and ends at j. <br>
+ * The best route is then the set of most coins whose walk, plus the way from its end <br>
+ * to the exit, fits in the budget. The program runs a layer per set size, and the <br>
+ * sets of a layer are computed in parallel on a ForkJoinPool; each entry is computed <br>
+ * from the layer before, so the threads never write the same entry and the result <br>
+ * does not depend on their number.
+ *
+ * It takes time about 2^k k^2 and memory 2^k k ints for k keys, so it is used on at <br>
+ * most maxKeys keys. If more coins could be visited, it solves the problem exactly for <br>
+ * the maxKeys that give the most coins per step of detour (CoinBound.cost), also runs <br>
+ * a fallback heuristic on all of them, and returns the better route. With all coins <br>
+ * in the program, its route is optimal, which makes it the baseline for judging the <br>
+ * other planners on small sewers. */
+public class SubsetDpPlanner implements ScramPlanner {
+
+    /** The default limit on the number of keys in the program. */
+    public static final int DEFAULT_MAX_KEYS= 16;
+
+    /** The largest allowed limit on the number of keys: 2^20 * 20 ints is 80 MB. */
+    public static final int MAX_KEYS= 20;
+
+    private final int maxKeys;
+    private final ScramPlanner fallback;
+    private final ForkJoinPool pool;
+
+    /** Constructor: a planner for at most DEFAULT_MAX_KEYS keys, with an <br>
+     * OrienteeringPlanner as fallback, that runs on the common ForkJoinPool. */
+    public SubsetDpPlanner() {
+        this(DEFAULT_MAX_KEYS, new OrienteeringPlanner(), ForkJoinPool.commonPool());
+    }
+
+    /** Constructor: a planner for at most maxKeys keys, with fallback for more, that <br>
+     * runs on pool. Throw an IllegalArgumentException if maxKeys is not in 1..MAX_KEYS. */
+    public SubsetDpPlanner(int maxKeys, ScramPlanner fallback, ForkJoinPool pool) {
+        if (maxKeys < 1 || maxKeys > MAX_KEYS) {
+            throw new IllegalArgumentException("SubsetDpPlanner: maxKeys " + maxKeys +
+                " not in 1.." + MAX_KEYS);
+        }
+        this.maxKeys= maxKeys;
+        this.fallback= fallback;
+        this.pool= pool;
+    }
+
+    /** Return true iff the route plan(m, budget, ...) returns is optimal: all the coin <br>
+     * keys that a route within budget can visit fit in the program. */
+    public boolean isExact(CoinDistanceMatrix m, int budget) {
+        return m.candidates(budget).length <= maxKeys;
+    }
+
+    @Override
+    public CoinRoute plan(CoinDistanceMatrix m, int budget, long deadline) {
+        int[] cand= m.candidates(budget);
+        if (cand.length <= maxKeys) return solve(m, budget, cand, deadline);
+
+        // the maxKeys with the most coins per detour step, then by key
+        CoinBound bound= new CoinBound(m, budget);
+        Integer[] byRatio= new Integer[cand.length];
+        for (int i= 0; i < cand.length; i++ ) {
+            byRatio[i]= cand[i];
+        }
+        Arrays.sort(byRatio, (a, b) -> {
+            int r= Double.compare(m.coins(b) * bound.cost(a), m.coins(a) * bound.cost(b));
+            return r != 0 ? r : Integer.compare(a, b);
+        });
+        int[] top= new int[maxKeys];
+        for (int i= 0; i < maxKeys; i++ ) {
+            top[i]= byRatio[i];
+        }
+        CoinRoute exact= solve(m, budget, top, deadline);
+        CoinRoute heur= fallback.plan(m, budget, deadline);
+        return heur.fits(budget) && heur.betterThan(exact) ? heur : exact;
+    }
+
+    /** Return a route of most coins, and of those a shortest one, of length at most <br>
+     * budget that visits only keys in keys. If deadline (a System.nanoTime() value) <br>
+     * passes, return the best route through fewer keys found so far. <br>
+     * Precondition: keys holds at most maxKeys distinct coin keys of m. */
+    public CoinRoute solve(CoinDistanceMatrix m, int budget, int[] keys, long deadline) {
+        int k= keys.length;
+        int[][] dm= m.keyDistances();
+        int exit= CoinDistanceMatrix.EXIT;
+        if (dm[CoinDistanceMatrix.START][exit] > budget) return new CoinRoute(m, new int[0]);
+
+        // len[S * k + j]: length of a shortest walk from the start that visits the keys
+        // in set S (bit i for keys[i]) and ends at keys[j]; INF if there is none that
+        // can still reach the exit within budget
+        int[] len= new int[k << k];
+        Arrays.fill(len, CoinDistanceMatrix.INF);
+        for (int j= 0; j < k; j++ ) {
+            int dj= dm[CoinDistanceMatrix.START][keys[j]];
+            if (dj != CoinDistanceMatrix.INF && (long) dj + dm[keys[j]][exit] <= budget) {
+                len[(1 << j) * k + j]= dj;
+            }
+        }
+
+        // the sets of each size, each layer in increasing order
+        int[][] layers= new int[k + 1][];
+        int[] fill= new int[k + 1];
+        for (int c= 0; c <= k; c++ ) {
+            layers[c]= new int[binomial(k, c)];
+        }
+        for (int s= 0; s < 1 << k; s++ ) {
+            int c= Integer.bitCount(s);
+            layers[c][fill[c]++ ]= s;
+        }
+
+        for (int c= 2; c <= k && System.nanoTime() < deadline; c++ ) {
+            int[] layer= layers[c];
+            pool.submit(() -> IntStream.range(0, layer.length).parallel()
+                .forEach((x) -> relax(layer[x], keys, dm, budget, len))).join();
+        }
+
+        // the best set and end, by coins, then length, then the smaller set
+        int bestS= 0;
+        int bestJ= -1;
+        int bestValue= 0;
+        int bestLength= dm[CoinDistanceMatrix.START][exit];
+        for (int s= 1; s < 1 << k; s++ ) {
+            int value= 0;
+            for (int j= 0; j < k; j++ ) {
+                if ((s & 1 << j) != 0) value+= m.coins(keys[j]);
+            }
+            if (value < bestValue) continue;
+            for (int j= 0; j < k; j++ ) {
+                int l= len[s * k + j];
+                if (l == CoinDistanceMatrix.INF) continue;
+                int total= l + dm[keys[j]][exit];
+                if (value > bestValue || total < bestLength) {
+                    bestS= s;
+                    bestJ= j;
+                    bestValue= value;
+                    bestLength= total;
+                }
+            }
+        }
+
+        // walk back from (bestS, bestJ) to the start
+        int[] route= new int[Integer.bitCount(bestS)];
+        int s= bestS;
+        int j= bestJ;
+        for (int n= route.length; n > 0; n-- ) {
+            route[n - 1]= keys[j];
+            int prev= s & ~(1 << j);
+            int i= -1;
+            for (int t= 0; prev != 0 && t < k; t++ ) {
+                if ((prev & 1 << t) != 0 && len[prev * k + t] != CoinDistanceMatrix.INF &&
+                    len[prev * k + t] + dm[keys[t]][keys[j]] == len[s * k + j]) {
+                    i= t;
+                    break;
+                }
+            }
+            s= prev;
+            j= i;
+        }
+        return new CoinRoute(m, route);
+    }
+
+    /** Compute the entries len[s * k + j] of set s from those of the sets with one <br>
+     * key fewer (see solve). */
+    private static void relax(int s, int[] keys, int[][] dm, int budget, int[] len) {
+        int k= keys.length;
+        for (int j= 0; j < k; j++ ) {
+            if ((s & 1 << j) == 0) continue;
+            int prev= s & ~(1 << j);
+            int kj= keys[j];
+            int out= dm[kj][CoinDistanceMatrix.EXIT];
+            if (out == CoinDistanceMatrix.INF) continue;
+            int best= CoinDistanceMatrix.INF;
+            for (int i= 0; i < k; i++ ) {
+                if ((prev & 1 << i) == 0) continue;
+                int l= len[prev * k + i];
+                int dij= dm[keys[i]][kj];
+                if (l == CoinDistanceMatrix.INF || dij == CoinDistanceMatrix.INF) continue;
+                best= Math.min(best, l + dij);
+            }
+            if (best != CoinDistanceMatrix.INF && (long) best + out <= budget) {
+                len[s * k + j]= best;
+            }
+        }
+    }
+
+    /** Return n choose c. */
+    private static int binomial(int n, int c) {
+        long b= 1;
+        for (int i= 0; i < c; i++ ) {
+            b= b * (n - i) / (i + 1);
+        }
+        return (int) b;
+    }
+
+    @Override
+    public String toString() {
+        return "SubsetDpPlanner[max " + maxKeys + " keys, fallback " + fallback + ", " +
+            pool.getParallelism() + " threads]";
+    }
+}
@@ -0,0 +1,43 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A SeekState that also reports McDiver's neighbors into buffers the caller owns, <br>
+ * so that a diver that looks around at every step allocates nothing to do so.
+ *
+ * A diver given a SeekState can call neighbors(s, ids, dists), which uses this <br>
+ * interface when s implements it and copies out of s.neighbors() otherwise. */
+public interface BufferedSeekState extends SeekState {
+
+	/** Put the id and the grid distance to the ring (as in NodeStatus) of each direct <br>
+	 * neighbor of McDiver's current location into ids and dists, from position 0, as <br>
+	 * many as fit in the shorter of the two, in no particular order. Return the number <br>
+	 * of neighbors; if it is more than fit, call again with longer buffers. */
+	int neighbors(long[] ids, int[] dists);
+
+	/** Do what s.neighbors(ids, dists) does, for any SeekState s: if s is not a <br>
+	 * BufferedSeekState, the statuses of s.neighbors() are copied into the buffers. */
+	static int neighbors(SeekState s, long[] ids, int[] dists) {
+		if (s instanceof BufferedSeekState) return ((BufferedSeekState) s).neighbors(ids, dists);
+		int m= Math.min(ids.length, dists.length);
+		int n= 0;
+		for (NodeStatus ns : s.neighbors()) {
+			if (n < m) {
+				ids[n]= ns.getId();
+				dists[n]= ns.getDistanceToRing();
+			}
+			n++ ;
+		}
+		return n;
+	}
+
+	/** Return a copy of ids that is long enough for n neighbors (ids itself if it is). */
+	static long[] fit(long[] ids, int n) {
+		return n <= ids.length ? ids : Arrays.copyOf(ids, Math.max(n, 2 * ids.length));
+	}
+
+	/** Return a copy of dists that is long enough for n neighbors (dists itself if it is). */
+	static int[] fit(int[] dists, int n) {
+		return n <= dists.length ? dists : Arrays.copyOf(dists, Math.max(n, 2 * dists.length));
+	}
+}
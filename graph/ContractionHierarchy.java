@@ -0,0 +1,514 @@
+package graph;
+
+import java.util.Arrays;
+
+/** An instance is a contraction hierarchy (CH) of the undirected graph of a sewer: an <br>
+ * index, built once, that answers shortest-path queries on that graph in a small <br>
+ * fraction of the time Dijkstra's algorithm takes.
+ *
+ * Preprocessing contracts the nodes one at a time, in an order chosen greedily <br>
+ * (fewest shortcuts added minus edges removed, plus neighbors already contracted). <br>
+ * Contracting v removes it from the graph; for each pair u, w of its remaining <br>
+ * neighbors whose shortest connection runs through v, a shortcut (u, w) of length <br>
+ * length(u, v) + length(v, w) is added. A node's rank is its position in the order. <br>
+ * The edges of v that remain when v is contracted lead up, to nodes of higher rank; <br>
+ * they form the upward graph, kept in CSR form like CsrGraph.
+ *
+ * Every shortest path then has a version that goes only up and then only down, so a <br>
+ * query is a bidirectional Dijkstra in which both searches walk the upward graph. <br>
+ * A shortcut remembers the node it bypasses, so paths are unpacked into original <br>
+ * edges. Sewer edges are undirected, so one upward graph serves both searches.
+ *
+ * Queries keep their scratch arrays per thread, so one hierarchy can be queried by <br>
+ * several threads at once. */
+public final class ContractionHierarchy {
+
+	/** The most nodes a witness search settles before giving up. Giving up early only <br>
+	 * adds shortcuts that are not needed; it never loses a shortest path. */
+	private static final int WITNESS_SETTLE_LIMIT= 100;
+
+	/** The graph this hierarchy is of. */
+	private final CsrGraph g;
+
+	/** rank[i] is the position of node i in the contraction order. */
+	private final int[] rank;
+
+	/** The upward edges of node i are in slots upOffsets[i]..upOffsets[i+1]-1 of <br>
+	 * upTargets, upWeights and upVia. Slot e leads to upTargets[e], of higher rank, <br>
+	 * and has length upWeights[e]; upVia[e] is the node the edge bypasses, or -1 if <br>
+	 * the edge is an edge of g. */
+	private final int[] upOffsets;
+	private final int[] upTargets;
+	private final int[] upWeights;
+	private final int[] upVia;
+
+	/** The number of shortcuts in the upward graph. */
+	private final int shortcuts;
+
+	/** The scratch space of the queries run on each thread. */
+	private final ThreadLocal<Query> queries;
+
+	/** Constructor: the contraction hierarchy of the graph of sewer sw. */
+	public ContractionHierarchy(Sewers sw) {
+		this(sw.csr());
+	}
+
+	/** Constructor: the contraction hierarchy of g. <br>
+	 * Precondition: g is undirected: it has an edge (v, w) iff it has (w, v), of the <br>
+	 * same length. The graphs of sewers are. */
+	public ContractionHierarchy(CsrGraph g) {
+		this.g= g;
+		int n= g.size();
+		Builder b= new Builder(g);
+		rank= b.contractAll();
+
+		upOffsets= new int[n + 1];
+		for (int v= 0; v < n; v++ ) {
+			upOffsets[v + 1]= upOffsets[v] + b.upCount[v];
+		}
+		upTargets= new int[upOffsets[n]];
+		upWeights= new int[upOffsets[n]];
+		upVia= new int[upOffsets[n]];
+		int sc= 0;
+		for (int v= 0; v < n; v++ ) {
+			int k= b.upCount[v];
+			System.arraycopy(b.upTarget[v], 0, upTargets, upOffsets[v], k);
+			System.arraycopy(b.upWeight[v], 0, upWeights, upOffsets[v], k);
+			System.arraycopy(b.upVia[v], 0, upVia, upOffsets[v], k);
+			for (int j= 0; j < k; j++ ) {
+				if (b.upVia[v][j] != -1) sc++ ;
+			}
+		}
+		shortcuts= sc;
+		queries= ThreadLocal.withInitial(() -> new Query(n));
+	}
+
+	/** Return the graph this hierarchy is of. */
+	public CsrGraph graph() {
+		return g;
+	}
+
+	/** Return the rank of the node with index i: its position in the contraction order. */
+	public int rank(int i) {
+		return rank[i];
+	}
+
+	/** Return the number of edges in the upward graph, shortcuts included. */
+	public int upwardEdgeCount() {
+		return upTargets.length;
+	}
+
+	/** Return the number of shortcuts in the upward graph. */
+	public int shortcutCount() {
+		return shortcuts;
+	}
+
+	/** Return the length of a shortest path from the node with index s to the node <br>
+	 * with index t (Integer.MAX_VALUE if there is none). */
+	public int distance(int s, int t) {
+		Query q= queries.get();
+		int meet= q.run(s, t);
+		int d= meet == -1 ? Integer.MAX_VALUE : q.distF[meet] + q.distB[meet];
+		q.reset();
+		return d;
+	}
+
+	/** Return the indices of the nodes of a shortest path from the node with index s <br>
+	 * to the node with index t, s first and t last, with every shortcut unpacked into <br>
+	 * edges of the graph ---or null if there is no path. */
+	public int[] path(int s, int t) {
+		Query q= queries.get();
+		int meet= q.run(s, t);
+		int[] path= meet == -1 ? null : q.unpack(s, t, meet);
+		q.reset();
+		return path;
+	}
+
+	/** Return the via of the upward edge from node lo to node hi (the node that edge <br>
+	 * bypasses, or -1). Precondition: lo has an upward edge to hi. */
+	private int viaOf(int lo, int hi) {
+		for (int e= upOffsets[lo]; e < upOffsets[lo + 1]; e++ ) {
+			if (upTargets[e] == hi) return upVia[e];
+		}
+		throw new IllegalStateException("no upward edge from " + lo + " to " + hi);
+	}
+
+	/** The scratch space of one thread's queries. Between queries, every dist is <br>
+	 * Integer.MAX_VALUE and both queues are empty. */
+	private final class Query {
+		/** distF[x] (distB[x]) is the length of the best known upward path from s <br>
+		 * (from t) to x; parentF[x] (parentB[x]) is the slot of its last edge, which <br>
+		 * leads up to x from the previous node on that path. */
+		final int[] distF;
+		final int[] distB;
+		final int[] parentF;
+		final int[] parentB;
+		/** touched[0..touchedCount-1] contains every node whose distF or distB may <br>
+		 * not be Integer.MAX_VALUE. */
+		final int[] touched;
+		int touchedCount;
+		final IntIndexedMinHeap F;
+		final IntIndexedMinHeap B;
+
+		Query(int n) {
+			distF= new int[n];
+			distB= new int[n];
+			Arrays.fill(distF, Integer.MAX_VALUE);
+			Arrays.fill(distB, Integer.MAX_VALUE);
+			parentF= new int[n];
+			parentB= new int[n];
+			touched= new int[2 * n];
+			F= new IntIndexedMinHeap(n);
+			B= new IntIndexedMinHeap(n);
+		}
+
+		/** Run the upward searches from s and t, and return the node at which a <br>
+		 * shortest s-t path turns from going up to going down (-1 if there is no path). */
+		int run(int s, int t) {
+			distF[s]= 0;
+			parentF[s]= -1;
+			distB[t]= 0;
+			parentB[t]= -1;
+			touched[touchedCount++ ]= s;
+			touched[touchedCount++ ]= t;
+			F.add(s, 0);
+			B.add(t, 0);
+
+			long mu= Long.MAX_VALUE;
+			int meet= -1;
+			// A search stops once its minimum reaches mu: everything it could still
+			// find is at least that long.
+			while (true) {
+				boolean fOn= !F.isEmpty() && F.peekPriority() < mu;
+				boolean bOn= !B.isEmpty() && B.peekPriority() < mu;
+				if (!fOn && !bOn) break;
+				boolean forward= fOn && (!bOn || F.peekPriority() <= B.peekPriority());
+				IntIndexedMinHeap Q= forward ? F : B;
+				int[] dist= forward ? distF : distB;
+				int[] parent= forward ? parentF : parentB;
+				int[] other= forward ? distB : distF;
+
+				int x= Q.poll();
+				int dx= dist[x];
+				if (other[x] != Integer.MAX_VALUE && (long) dx + other[x] < mu) {
+					mu= (long) dx + other[x];
+					meet= x;
+				}
+				if (stalled(x, dist)) continue;
+				for (int e= upOffsets[x]; e < upOffsets[x + 1]; e++ ) {
+					int y= upTargets[e];
+					int len= dx + upWeights[e];
+					if (len < dist[y]) {
+						if (distF[y] == Integer.MAX_VALUE && distB[y] == Integer.MAX_VALUE) {
+							touched[touchedCount++ ]= y;
+						}
+						dist[y]= len;
+						parent[y]= e;
+						Q.insertOrDecrease(y, len);
+					}
+				}
+			}
+			return meet;
+		}
+
+		/** Return true iff the distance of x in dist is beaten by going down to x from <br>
+		 * a node of higher rank. Then no shortest path goes up from x, and its edges <br>
+		 * need not be relaxed ("stall-on-demand"). The graph is undirected, so the <br>
+		 * edges into x from above are x's upward edges. */
+		private boolean stalled(int x, int[] dist) {
+			int dx= dist[x];
+			for (int e= upOffsets[x]; e < upOffsets[x + 1]; e++ ) {
+				int dy= dist[upTargets[e]];
+				if (dy != Integer.MAX_VALUE && dy + upWeights[e] < dx) return true;
+			}
+			return false;
+		}
+
+		/** Return the nodes of the s-t path that turns at meet, unpacked. <br>
+		 * Precondition: run(s, t) returned meet. */
+		int[] unpack(int s, int t, int meet) {
+			IntList out= new IntList();
+			// the upward path from s to meet, read backward from meet
+			IntList up= new IntList();
+			for (int x= meet; x != s; x= source(parentF[x])) {
+				up.add(x);
+			}
+			out.add(s);
+			int prev= s;
+			for (int i= up.size - 1; i >= 0; i-- ) {
+				int x= up.a[i];
+				unpackEdge(prev, x, upVia[parentF[x]], out);
+				prev= x;
+			}
+			// the downward path from meet to t
+			for (int x= meet; x != t;) {
+				int e= parentB[x];
+				int y= source(e);
+				unpackEdge(x, y, upVia[e], out);
+				x= y;
+			}
+			return Arrays.copyOf(out.a, out.size);
+		}
+
+		/** Return the node whose upward edge slot e is. */
+		private int source(int e) {
+			// upOffsets is sorted: find the last v with upOffsets[v] <= e
+			int lo= 0;
+			int hi= upOffsets.length - 1;
+			while (hi - lo > 1) {
+				int mid= (lo + hi) >>> 1;
+				if (upOffsets[mid] <= e) lo= mid;
+				else hi= mid;
+			}
+			return lo;
+		}
+
+		/** Append to out the nodes after from of the path the edge (from, to) with <br>
+		 * via via stands for, ending with to. */
+		private void unpackEdge(int from, int to, int via, IntList out) {
+			// stack of (from, to, via) triples still to unpack, the next on top
+			IntList stack= new IntList();
+			stack.add(from);
+			stack.add(to);
+			stack.add(via);
+			while (stack.size > 0) {
+				int m= stack.a[--stack.size];
+				int b= stack.a[--stack.size];
+				int a= stack.a[--stack.size];
+				if (m == -1) {
+					out.add(b);
+				} else {
+					// m has lower rank than a and b: both halves are upward edges of m
+					stack.add(m);
+					stack.add(b);
+					stack.add(viaOf(m, b));
+					stack.add(a);
+					stack.add(m);
+					stack.add(viaOf(m, a));
+				}
+			}
+		}
+
+		/** Make every dist Integer.MAX_VALUE and both queues empty again. */
+		void reset() {
+			for (int i= 0; i < touchedCount; i++ ) {
+				int x= touched[i];
+				distF[x]= Integer.MAX_VALUE;
+				distB[x]= Integer.MAX_VALUE;
+			}
+			touchedCount= 0;
+			F.clear();
+			B.clear();
+		}
+	}
+
+	/** A growable list of ints. */
+	private static final class IntList {
+		int[] a= new int[16];
+		int size;
+
+		void add(int x) {
+			if (size == a.length) a= Arrays.copyOf(a, 2 * size);
+			a[size++ ]= x;
+		}
+	}
+
+	/** The state of preprocessing: the remaining graph, as adjacency lists that grow <br>
+	 * as shortcuts are added, and the upward edges recorded so far. */
+	private static final class Builder {
+		final int n;
+		/** The neighbors of v in the remaining graph are nbr[v][0..deg[v]-1], with <br>
+		 * lengths len[v][..] and vias via[v][..]. Entries for contracted nodes may remain; <br>
+		 * they are skipped. */
+		final int[][] nbr;
+		final int[][] len;
+		final int[][] via;
+		final int[] deg;
+		final boolean[] contracted;
+		/** deleted[v] is the number of v's neighbors contracted so far. */
+		final int[] deleted;
+		/** The upward edges recorded for v (see ContractionHierarchy). */
+		final int[][] upTarget;
+		final int[][] upWeight;
+		final int[][] upVia;
+		final int[] upCount;
+
+		/** Witness-search scratch: wdist is Integer.MAX_VALUE except at the wTouched nodes. */
+		final int[] wdist;
+		final int[] wTouched;
+		int wTouchedCount;
+		final IntIndexedMinHeap wq;
+
+		Builder(CsrGraph g) {
+			n= g.size();
+			nbr= new int[n][];
+			len= new int[n][];
+			via= new int[n][];
+			deg= new int[n];
+			for (int v= 0; v < n; v++ ) {
+				int k= g.endExit(v) - g.firstExit(v);
+				nbr[v]= new int[Math.max(4, k)];
+				len[v]= new int[nbr[v].length];
+				via[v]= new int[nbr[v].length];
+				for (int e= g.firstExit(v); e < g.endExit(v); e++ ) {
+					addOrLower(v, g.target(e), g.weight(e), -1);
+				}
+			}
+			contracted= new boolean[n];
+			deleted= new int[n];
+			upTarget= new int[n][];
+			upWeight= new int[n][];
+			upVia= new int[n][];
+			upCount= new int[n];
+			wdist= new int[n];
+			Arrays.fill(wdist, Integer.MAX_VALUE);
+			wTouched= new int[n];
+			wq= new IntIndexedMinHeap(n);
+		}
+
+		/** Contract every node and return the ranks. */
+		int[] contractAll() {
+			IntIndexedMinHeap order= new IntIndexedMinHeap(n);
+			for (int v= 0; v < n; v++ ) {
+				order.add(v, priority(v));
+			}
+			int[] rank= new int[n];
+			int next= 0;
+			while (!order.isEmpty()) {
+				int v= order.poll();
+				// priorities are updated lazily: if v's has grown past the next one,
+				// put it back and try again
+				int p= priority(v);
+				if (!order.isEmpty() && p > order.peekPriority()) {
+					order.add(v, p);
+					continue;
+				}
+				contract(v, true);
+				rank[v]= next++ ;
+			}
+			return rank;
+		}
+
+		/** Return the priority of v in the contraction order: the number of shortcuts <br>
+		 * contracting v adds minus the number of edges it removes, plus the number of <br>
+		 * v's neighbors contracted already (which spreads contraction evenly). */
+		int priority(int v) {
+			return contract(v, false) - activeDegree(v) + deleted[v];
+		}
+
+		/** Return the number of uncontracted neighbors of v. */
+		int activeDegree(int v) {
+			int k= 0;
+			for (int j= 0; j < deg[v]; j++ ) {
+				if (!contracted[nbr[v][j]]) k++ ;
+			}
+			return k;
+		}
+
+		/** Count the shortcuts contracting v needs, and return the count. If really, <br>
+		 * also add them, record v's upward edges, and remove v from the graph. */
+		int contract(int v, boolean really) {
+			// the uncontracted neighbors of v and the lengths of their edges to v
+			int k= 0;
+			int[] us= new int[deg[v]];
+			int[] ls= new int[deg[v]];
+			int[] vs= new int[deg[v]];
+			int maxLen= 0;
+			for (int j= 0; j < deg[v]; j++ ) {
+				int u= nbr[v][j];
+				if (contracted[u]) continue;
+				us[k]= u;
+				ls[k]= len[v][j];
+				vs[k]= via[v][j];
+				maxLen= Math.max(maxLen, ls[k]);
+				k++ ;
+			}
+
+			int count= 0;
+			for (int i= 0; i < k; i++ ) {
+				// every u_j with a path avoiding v of length at most ls[i] + ls[j]
+				// has a witness and needs no shortcut
+				witnessSearch(us[i], v, ls[i] + maxLen);
+				for (int j= i + 1; j < k; j++ ) {
+					int through= ls[i] + ls[j];
+					if (wdist[us[j]] <= through) continue;
+					count++ ;
+					if (really) {
+						addOrLower(us[i], us[j], through, v);
+						addOrLower(us[j], us[i], through, v);
+					}
+				}
+				clearWitness();
+			}
+
+			if (really) {
+				upTarget[v]= Arrays.copyOf(us, k);
+				upWeight[v]= Arrays.copyOf(ls, k);
+				upVia[v]= Arrays.copyOf(vs, k);
+				upCount[v]= k;
+				contracted[v]= true;
+				for (int i= 0; i < k; i++ ) {
+					deleted[us[i]]++ ;
+				}
+			}
+			return count;
+		}
+
+		/** Run Dijkstra from u over the uncontracted nodes other than skip, stopping <br>
+		 * when the next node is farther than bound or WITNESS_SETTLE_LIMIT nodes are <br>
+		 * settled. Afterwards wdist holds upper bounds on the distances it reached. */
+		void witnessSearch(int u, int skip, int bound) {
+			wdist[u]= 0;
+			wTouched[wTouchedCount++ ]= u;
+			wq.add(u, 0);
+			int settled= 0;
+			while (!wq.isEmpty() && wq.peekPriority() <= bound && settled < WITNESS_SETTLE_LIMIT) {
+				int x= wq.poll();
+				settled++ ;
+				int dx= wdist[x];
+				for (int j= 0; j < deg[x]; j++ ) {
+					int y= nbr[x][j];
+					if (y == skip || contracted[y]) continue;
+					int d= dx + len[x][j];
+					if (d < wdist[y]) {
+						if (wdist[y] == Integer.MAX_VALUE) wTouched[wTouchedCount++ ]= y;
+						wdist[y]= d;
+						wq.insertOrDecrease(y, d);
+					}
+				}
+			}
+		}
+
+		/** Undo witnessSearch: make every wdist Integer.MAX_VALUE and wq empty. */
+		void clearWitness() {
+			for (int i= 0; i < wTouchedCount; i++ ) {
+				wdist[wTouched[i]]= Integer.MAX_VALUE;
+			}
+			wTouchedCount= 0;
+			wq.clear();
+		}
+
+		/** Give v an edge to w of length l with via m, or, if v has an edge to w <br>
+		 * already, lower its length to l (and make its via m) if l is smaller. */
+		void addOrLower(int v, int w, int l, int m) {
+			for (int j= 0; j < deg[v]; j++ ) {
+				if (nbr[v][j] == w) {
+					if (l < len[v][j]) {
+						len[v][j]= l;
+						via[v][j]= m;
+					}
+					return;
+				}
+			}
+			if (deg[v] == nbr[v].length) {
+				nbr[v]= Arrays.copyOf(nbr[v], 2 * deg[v]);
+				len[v]= Arrays.copyOf(len[v], 2 * deg[v]);
+				via[v]= Arrays.copyOf(via[v], 2 * deg[v]);
+			}
+			nbr[v][deg[v]]= w;
+			len[v][deg[v]]= l;
+			via[v][deg[v]]= m;
+			deg[v]++ ;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/** An instance is an immutable compressed-sparse-row (CSR) view of the graph of a Sewers.<br>
+ * Each node of the graph has a dense index in 0..size()-1, assigned in row-major order <br>
+ * of the nodes' tiles. The exits of the node with index i are the edge slots <br>
+ * firstExit(i)..endExit(i)-1; slot e leads to node target(e) and has length weight(e).
+ *
+ * Searches that walk the graph through this view touch only three flat arrays, <br>
+ * so they neither chase Edge/Node pointers nor allocate while relaxing edges. */
+public final class CsrGraph {
+
+	/** nodes[i] is the node with index i. */
+	private final Node[] nodes;
+
+	/** The exits of node i are in slots offsets[i]..offsets[i+1]-1 of targets and weights. */
+	private final int[] offsets;
+
+	/** targets[e] is the index of the node that edge slot e leads to. */
+	private final int[] targets;
+
+	/** weights[e] is the length of the edge in slot e. */
+	private final short[] weights;
+
+	/** The greatest edge length (0 if there are no edges). */
+	private final int maxWeight;
+
+	/** The least edge length (0 if there are no edges). */
+	private final int minWeight;
+
+	/** rows[i] and cols[i] are the row and column of the tile of the node with index i. */
+	private final int[] rows;
+	private final int[] cols;
+
+	/** The graph whose nodes carry the indices (this one, unless this is a reverse view). */
+	private final CsrGraph owner;
+
+	/** The reverse view of this graph, built on first use. */
+	private volatile CsrGraph reverse;
+
+	/** Constructor: the CSR view of graph, a collection of nodes whose edges all lead to <br>
+	 * nodes in graph. This assigns each node of graph its index. <br>
+	 * Throw an IllegalArgumentException if an edge length does not fit in a short. */
+	/* package */ CsrGraph(Collection<Node> graph) {
+		nodes= graph.toArray(new Node[0]);
+		Arrays.sort(nodes, Comparator.comparingInt((Node n) -> n.getTile().row())
+			.thenComparingInt((n) -> n.getTile().column()));
+		rows= new int[nodes.length];
+		cols= new int[nodes.length];
+		for (int i= 0; i < nodes.length; i++ ) {
+			nodes[i].setIndex(this, i);
+			rows[i]= nodes[i].getTile().row();
+			cols[i]= nodes[i].getTile().column();
+		}
+
+		offsets= new int[nodes.length + 1];
+		for (int i= 0; i < nodes.length; i++ ) {
+			offsets[i + 1]= offsets[i] + nodes[i].getExits().size();
+		}
+
+		targets= new int[offsets[nodes.length]];
+		weights= new short[offsets[nodes.length]];
+		int max= 0;
+		int min= Integer.MAX_VALUE;
+		for (int i= 0; i < nodes.length; i++ ) {
+			int e= offsets[i];
+			for (Edge ed : nodes[i].getExits()) {
+				if (ed.length < 0 || ed.length > Short.MAX_VALUE) {
+					throw new IllegalArgumentException("CsrGraph: edge length out of range");
+				}
+				targets[e]= ed.getOther(nodes[i]).index();
+				weights[e]= (short) ed.length;
+				max= Math.max(max, ed.length);
+				min= Math.min(min, ed.length);
+				e++ ;
+			}
+		}
+		maxWeight= max;
+		minWeight= targets.length == 0 ? 0 : min;
+		owner= this;
+	}
+
+	/** Constructor: the reverse view of forward: same nodes and indices, with every <br>
+	 * edge turned around. */
+	private CsrGraph(CsrGraph forward) {
+		nodes= forward.nodes;
+		rows= forward.rows;
+		cols= forward.cols;
+		maxWeight= forward.maxWeight;
+		minWeight= forward.minWeight;
+		owner= forward;
+		reverse= forward;
+
+		offsets= new int[nodes.length + 1];
+		for (int t : forward.targets) {
+			offsets[t + 1]++ ;
+		}
+		for (int i= 0; i < nodes.length; i++ ) {
+			offsets[i + 1]+= offsets[i];
+		}
+		targets= new int[forward.targets.length];
+		weights= new short[forward.weights.length];
+		int[] fill= Arrays.copyOf(offsets, nodes.length);
+		for (int i= 0; i < nodes.length; i++ ) {
+			for (int e= forward.offsets[i]; e < forward.offsets[i + 1]; e++ ) {
+				int slot= fill[forward.targets[e]]++ ;
+				targets[slot]= i;
+				weights[slot]= forward.weights[e];
+			}
+		}
+	}
+
+	/** Return the reverse view of this graph: the same nodes, with index, in which <br>
+	 * there is an edge from v to w iff this graph has one from w to v, of the same length. <br>
+	 * Searching the reverse view from a node gives distances TO that node. */
+	public CsrGraph reverse() {
+		CsrGraph r= reverse;
+		if (r == null) {
+			synchronized (this) {
+				r= reverse;
+				if (r == null) {
+					r= new CsrGraph(this);
+					reverse= r;
+				}
+			}
+		}
+		return r;
+	}
+
+	/** Return the number of nodes in this graph. */
+	public int size() {
+		return nodes.length;
+	}
+
+	/** Return the number of (directed) edges in this graph. */
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	/** Return the greatest edge length in this graph (0 if it has no edges). */
+	public int maxWeight() {
+		return maxWeight;
+	}
+
+	/** Return the least edge length in this graph (0 if it has no edges). */
+	public int minWeight() {
+		return minWeight;
+	}
+
+	/** Return the row of the tile of the node with index i. */
+	public int row(int i) {
+		return rows[i];
+	}
+
+	/** Return the column of the tile of the node with index i. */
+	public int column(int i) {
+		return cols[i];
+	}
+
+	/** Return the node with index i. <br>
+	 * Precondition: 0 <= i < size(). */
+	public Node node(int i) {
+		return nodes[i];
+	}
+
+	/** Return the index of node n in this graph, or -1 if n is not a node of this graph. */
+	public int indexOf(Node n) {
+		return n.csr() == owner ? n.index() : -1;
+	}
+
+	/** Return the first edge slot of the node with index i. <br>
+	 * Precondition: 0 <= i < size(). */
+	public int firstExit(int i) {
+		return offsets[i];
+	}
+
+	/** Return one past the last edge slot of the node with index i. <br>
+	 * Precondition: 0 <= i < size(). */
+	public int endExit(int i) {
+		return offsets[i + 1];
+	}
+
+	/** Return the index of the node that edge slot e leads to. <br>
+	 * Precondition: 0 <= e < edgeCount(). */
+	public int target(int e) {
+		return targets[e];
+	}
+
+	/** Return the length of the edge in slot e. <br>
+	 * Precondition: 0 <= e < edgeCount(). */
+	public int weight(int e) {
+		return weights[e];
+	}
+}
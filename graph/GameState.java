@@ -20,7 +20,7 @@ import java.util.concurrent.TimeoutException;
 import diver.McDiver;
 import gui.GUI;
 
-public class GameState implements SeekState, ScramState {
+public class GameState implements BufferedSeekState, ScramState {
 
 	private enum Stage {
 		SEEK, SCRAM;
@@ -47,6 +47,8 @@ public class GameState implements SeekState, ScramState {
 	private static final double NO_BONUS_LENGTH= 3;
 
 	private final Sewers seekSewer;
+	/** The ids, neighbors, and distances to the ring of seekSewer's nodes. */
+	private final SeekTable seekTable;
 	private final Sewers scramSewer;
 
 	private final SewerDiver sewerDiver;
@@ -87,6 +89,7 @@ public class GameState implements SeekState, ScramState {
 		throws IOException {
 		seekSewer= Sewers.deserialize(Files.readAllLines(seekSewerPath));
 		minSeekSteps= seekSewer.minPathLengthToRing(seekSewer.entrance());
+		seekTable= seekSewer.seekTable();
 		scramSewer= Sewers.deserialize(Files.readAllLines(scramSewerPath));
 
 		sewerDiver= sd;
@@ -116,6 +119,7 @@ public class GameState implements SeekState, ScramState {
 		int COLS= rand.nextInt(MAX_COLS - MIN_COLS + 1) + MIN_COLS;
 		seekSewer= Sewers.digExploreSewer(ROWS, COLS, rand);
 		minSeekSteps= seekSewer.minPathLengthToRing(seekSewer.entrance());
+		seekTable= seekSewer.seekTable();
 		Tile ringTile= seekSewer.ring().getTile();
 		scramSewer= Sewers.digGetOutSewer(ROWS, COLS, ringTile.row(), ringTile.column(), rand);
 
@@ -348,16 +352,15 @@ public class GameState implements SeekState, ScramState {
 			throw new IllegalStateException("moveTo(ID) can only be called while scramming!");
 		}
 
-		for (Node n : position.getNeighbors()) {
-			if (n.getId() == id) {
-				position= n;
-				stepsTaken++ ;
-				gui.ifPresent((g) -> g.updateBonus(computeBonusFactor()));
-				gui.ifPresent((g) -> g.moveTo(n));
-				return;
-			}
+		int i= seekTable.indexOf(id);
+		if (i < 0 || !seekTable.adjacent(position.index(), i)) {
+			throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
 		}
-		throw new IllegalArgumentException("moveTo: Node must be adjacent to position");
+		Node n= seekTable.csr().node(i);
+		position= n;
+		stepsTaken++ ;
+		gui.ifPresent((g) -> g.updateBonus(computeBonusFactor()));
+		gui.ifPresent((g) -> g.moveTo(n));
 	}
 
 	/** Return the unique id of the current location. */
@@ -378,18 +381,25 @@ public class GameState implements SeekState, ScramState {
 			throw new IllegalStateException("getNeighbors() can be called only while scramming!");
 		}
 
-		Collection<NodeStatus> options= new ArrayList<>();
-		for (Node n : position.getNeighbors()) {
-			int distance= computeDistanceToRing(n.getTile().row(), n.getTile().column());
-			options.add(new NodeStatus(n.getId(), distance));
+		CsrGraph csr= seekTable.csr();
+		int i= position.index();
+		Collection<NodeStatus> options= new ArrayList<>(csr.endExit(i) - csr.firstExit(i));
+		for (int e= csr.firstExit(i); e < csr.endExit(i); e++ ) {
+			int w= csr.target(e);
+			options.add(new NodeStatus(seekTable.id(w), seekTable.distanceToRing(w)));
 		}
 		return options;
 	}
 
-	/** Return the Manhattan distance from (row, col) to the ring */
-	private int computeDistanceToRing(int row, int col) {
-		return Math.abs(row - seekSewer.ring().getTile().row()) +
-			Math.abs(col - seekSewer.ring().getTile().column());
+	/** Put the ids and distances to the ring of the neighbors of the current location <br>
+	 * into ids and dists without allocating; see BufferedSeekState. */
+	@Override
+	public int neighbors(long[] ids, int[] dists) {
+		if (stage != Stage.SEEK) {
+			throw new IllegalStateException("neighbors() can be called only while seeking!");
+		}
+
+		return seekTable.neighbors(position.index(), ids, dists);
 	}
 
 	/** Return the Manhattan distance from the current location <br>
@@ -401,7 +411,7 @@ public class GameState implements SeekState, ScramState {
 				"distanceToRing() can be called only while scramming!");
 		}
 
-		return computeDistanceToRing(position.getTile().row(), position.getTile().column());
+		return seekTable.distanceToRing(position.index());
 	}
 
 	@Override
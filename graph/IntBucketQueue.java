@@ -0,0 +1,186 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An instance is a monotone bucket queue (Dial's algorithm) of distinct int handles <br>
+ * in 0..n-1 with int priorities, for shortest-path searches whose edge lengths are <br>
+ * at most maxWeight. It keeps maxWeight+1 buckets in a circular array: bucket p % (maxWeight+1) <br>
+ * holds the handles with priority p. Every operation takes constant time, except that <br>
+ * poll and peek may step over up to maxWeight empty buckets.
+ *
+ * The queue is monotone: every priority in it lies in cur..cur+maxWeight, <br>
+ * where cur is the priority of the last handle polled. That always holds in <br>
+ * Dijkstra's algorithm on a graph whose edge lengths are in 0..maxWeight. */
+public final class IntBucketQueue implements PQueue {
+
+	/** Class Invariant: <br>
+	 * 1. The handles with priority p form a doubly linked list (through next and prev) <br>
+	 * whose first handle is head[p % head.length]; head[b] = -1 if bucket b is empty. <br>
+	 * 2. prio[v] is the priority of handle v if v is in the queue. <br>
+	 * 3. prev[v] = NOT_IN for a handle v not in the queue, prev[v] = -1 for the first <br>
+	 * handle of a bucket; next[v] = -1 for the last handle of a bucket. <br>
+	 * 4. Every handle in the queue has a priority in cur..cur+head.length-1. */
+	private static final int NOT_IN= -2;
+	private final int[] head;
+	private final int[] next;
+	private final int[] prev;
+	private final int[] prio;
+	private int cur;
+	private int size;
+
+	/** Constructor: an empty queue for handles 0..n-1 whose priorities never spread <br>
+	 * over more than maxWeight+1 consecutive values. <br>
+	 * Precondition: maxWeight >= 0. */
+	public IntBucketQueue(int n, int maxWeight) {
+		head= new int[maxWeight + 1];
+		Arrays.fill(head, -1);
+		next= new int[n];
+		prev= new int[n];
+		Arrays.fill(prev, NOT_IN);
+		prio= new int[n];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(int e) {
+		return prev[e] != NOT_IN;
+	}
+
+	/** Add e with priority p to the queue.<br>
+	 * Throw an IllegalArgumentException if e is already in the queue or if <br>
+	 * p is negative or not in cur..cur+maxWeight (the queue not being empty). */
+	@Override
+	public void add(int e, int p) {
+		if (prev[e] != NOT_IN) throw new IllegalArgumentException("add: handle already in queue");
+		checkWindow(p);
+		link(e, p);
+		size++ ;
+	}
+
+	/** See PQueue. Throw an IllegalArgumentException if p is out of the window (see add). */
+	@Override
+	public boolean insertOrDecrease(int e, int p) {
+		if (prev[e] == NOT_IN) {
+			checkWindow(p);
+			link(e, p);
+			size++ ;
+			return true;
+		}
+		if (p >= prio[e]) return false;
+		checkWindow(p);
+		unlink(e);
+		link(e, p);
+		return true;
+	}
+
+	/** See PQueue. Throw an IllegalArgumentException if p is out of the window (see add). */
+	@Override
+	public void changePriority(int e, int p) {
+		if (prev[e] == NOT_IN) {
+			throw new IllegalArgumentException("changePriority: handle not in queue");
+		}
+		checkWindow(p);
+		unlink(e);
+		link(e, p);
+	}
+
+	@Override
+	public int peek() {
+		return head[advance()];
+	}
+
+	@Override
+	public int poll() {
+		int e= head[advance()];
+		unlink(e);
+		prev[e]= NOT_IN;
+		size-- ;
+		return e;
+	}
+
+	@Override
+	public void clear() {
+		for (int b= 0; b < head.length; b++ ) {
+			for (int e= head[b]; e != -1; e= next[e]) {
+				prev[e]= NOT_IN;
+			}
+			head[b]= -1;
+		}
+		size= 0;
+	}
+
+	/** Return the queue's handles and priorities in the format given in PQueue, <br>
+	 * in increasing order of priority. */
+	@Override
+	public String toString() {
+		StringBuilder sb= new StringBuilder("[");
+		boolean first= true;
+		for (int d= 0; size > 0 && d < head.length; d++ ) {
+			for (int e= head[(cur + d) % head.length]; e != -1; e= next[e]) {
+				if (!first) sb.append(", ");
+				sb.append(e).append(':').append(prio[e]);
+				first= false;
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/** Move cur up to the lowest priority in the queue and return its bucket. <br>
+	 * Throw a NoSuchElementException if the queue is empty. */
+	private int advance() {
+		if (size == 0) throw new NoSuchElementException();
+		int b= cur % head.length;
+		while (head[b] == -1) {
+			cur++ ;
+			b= b + 1 == head.length ? 0 : b + 1;
+		}
+		return b;
+	}
+
+	/** Throw an IllegalArgumentException if p is negative, or if the queue is not empty <br>
+	 * and p is not in cur..cur+maxWeight. If the queue is empty and p is outside <br>
+	 * that window, move the window to start at p. */
+	private void checkWindow(int p) {
+		if (p >= cur && p - cur < head.length) return;
+		if (size == 0 && p >= 0) {
+			cur= p;
+		} else {
+			throw new IllegalArgumentException("priority " + p + " outside bucket window " + cur +
+				".." + (cur + head.length - 1));
+		}
+	}
+
+	/** Put handle e, with priority p, at the front of its bucket. */
+	private void link(int e, int p) {
+		int b= p % head.length;
+		prio[e]= p;
+		int h= head[b];
+		next[e]= h;
+		prev[e]= -1;
+		if (h != -1) prev[h]= e;
+		head[b]= e;
+	}
+
+	/** Take handle e, which is in the queue, out of its bucket list. <br>
+	 * prev[e] and next[e] are left as they were. */
+	private void unlink(int e) {
+		int p= prev[e];
+		int n= next[e];
+		if (p == -1) {
+			head[prio[e] % head.length]= n;
+		} else {
+			next[p]= n;
+		}
+		if (n != -1) prev[n]= p;
+	}
+}
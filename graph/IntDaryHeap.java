@@ -0,0 +1,154 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An instance is a d-ary min-heap of distinct int handles in 0..n-1 with int priorities, <br>
+ * stored as parallel arrays like IntIndexedMinHeap. A wider node makes the tree <br>
+ * shallower, so insertOrDecrease (the common operation in Dijkstra's algorithm) <br>
+ * does fewer swaps, at the price of more comparisons in poll. */
+public final class IntDaryHeap implements PQueue {
+
+	/** Class Invariant: <br>
+	 * 1. heap[0..size-1] represents a complete d-ary tree of handles. heap[0] is the root; <br>
+	 * for k > 0, (k-1)/d is the index of the parent of heap[k], and the children <br>
+	 * of heap[k] are heap[d*k+1..d*k+d] (those that are < size). <br>
+	 * 2. prio[k] is the priority of heap[k], and prio[parent] <= prio[k]. <br>
+	 * 3. pos[heap[k]] = k for k in 0..size-1; pos[v] = -1 for every other handle v. */
+	private final int d;
+	private final int[] heap;
+	private final int[] prio;
+	private final int[] pos;
+	private int size;
+
+	/** Constructor: an empty d-ary heap for handles 0..n-1. <br>
+	 * Precondition: d >= 2. */
+	public IntDaryHeap(int n, int d) {
+		this.d= d;
+		heap= new int[n];
+		prio= new int[n];
+		pos= new int[n];
+		Arrays.fill(pos, -1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(int e) {
+		return pos[e] >= 0;
+	}
+
+	@Override
+	public void add(int e, int p) {
+		if (pos[e] >= 0) throw new IllegalArgumentException("add: handle already in heap");
+		size++ ;
+		bubbleUp(size - 1, e, p);
+	}
+
+	@Override
+	public boolean insertOrDecrease(int e, int p) {
+		int k= pos[e];
+		if (k < 0) {
+			size++ ;
+			bubbleUp(size - 1, e, p);
+			return true;
+		}
+		if (p >= prio[k]) return false;
+		bubbleUp(k, e, p);
+		return true;
+	}
+
+	@Override
+	public void changePriority(int e, int p) {
+		int k= pos[e];
+		if (k < 0) throw new IllegalArgumentException("changePriority: handle not in heap");
+		if (p < prio[k]) {
+			bubbleUp(k, e, p);
+		} else {
+			bubbleDown(k, e, p);
+		}
+	}
+
+	@Override
+	public int peek() {
+		if (size == 0) throw new NoSuchElementException();
+		return heap[0];
+	}
+
+	@Override
+	public int poll() {
+		if (size == 0) throw new NoSuchElementException();
+		int e= heap[0];
+		pos[e]= -1;
+		size-- ;
+		if (size > 0) bubbleDown(0, heap[size], prio[size]);
+		return e;
+	}
+
+	@Override
+	public void clear() {
+		for (int k= 0; k < size; k++ ) {
+			pos[heap[k]]= -1;
+		}
+		size= 0;
+	}
+
+	/** Return this heap's handles and priorities in the format given in PQueue. */
+	@Override
+	public String toString() {
+		StringBuilder sb= new StringBuilder("[");
+		for (int k= 0; k < size; k++ ) {
+			if (k > 0) sb.append(", ");
+			sb.append(heap[k]).append(':').append(prio[k]);
+		}
+		return sb.append(']').toString();
+	}
+
+	/** Place handle e with priority p at slot k, moving it up to its right place. <br>
+	 * Precondition: the class invariant holds for all slots other than k, and <br>
+	 * p is at most the priorities of k's children. */
+	private void bubbleUp(int k, int e, int p) {
+		while (k > 0) {
+			int parent= (k - 1) / d;
+			if (prio[parent] <= p) break;
+			heap[k]= heap[parent];
+			prio[k]= prio[parent];
+			pos[heap[k]]= k;
+			k= parent;
+		}
+		heap[k]= e;
+		prio[k]= p;
+		pos[e]= k;
+	}
+
+	/** Place handle e with priority p at slot k, moving it down to its right place. <br>
+	 * Precondition: the class invariant holds for all slots other than k, and <br>
+	 * p is at least the priority of k's parent. */
+	private void bubbleDown(int k, int e, int p) {
+		while (true) {
+			int first= d * k + 1;
+			if (first >= size) break;
+			int end= Math.min(first + d, size);
+			int c= first;
+			for (int j= first + 1; j < end; j++ ) {
+				if (prio[j] < prio[c]) c= j;
+			}
+			if (p <= prio[c]) break;
+			heap[k]= heap[c];
+			prio[k]= prio[c];
+			pos[heap[k]]= k;
+			k= c;
+		}
+		heap[k]= e;
+		prio[k]= p;
+		pos[e]= k;
+	}
+}
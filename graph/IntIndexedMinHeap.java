@@ -0,0 +1,217 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An instance is a binary min-heap of distinct int handles in 0..n-1 (e.g. dense node<br>
+ * indices) with int priorities. It is stored as parallel arrays, so no operation <br>
+ * allocates once the heap is constructed.
+ *
+ * Use insertOrDecrease in Dijkstra's algorithm: it adds a handle that is not in the <br>
+ * heap and lowers the priority of one that is, in one operation. */
+public final class IntIndexedMinHeap implements PQueue {
+
+	/** Class Invariant: <br>
+	 * 1. heap[0..size-1] represents a complete binary tree of handles. heap[0] is the root; <br>
+	 * for k > 0, (k-1)/2 is the index of the parent of heap[k]. <br>
+	 * 2. prio[k] is the priority of heap[k], and for k in 1..size-1, <br>
+	 * prio[(k-1)/2] <= prio[k]. <br>
+	 * 3. pos[heap[k]] = k for k in 0..size-1, and pos[v] = -1 for every handle v <br>
+	 * not in heap[0..size-1]. */
+	private final int[] heap;
+	private final int[] prio;
+	private final int[] pos;
+	private int size;
+
+	/** Constructor: an empty heap for handles 0..n-1. */
+	public IntIndexedMinHeap(int n) {
+		heap= new int[n];
+		prio= new int[n];
+		pos= new int[n];
+		Arrays.fill(pos, -1);
+	}
+
+	/** Return the number of handles in this heap. */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/** Return true iff this heap is empty. */
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Return true iff handle v is in this heap. */
+	@Override
+	public boolean contains(int v) {
+		return pos[v] >= 0;
+	}
+
+	/** Return the priority of handle v. <br>
+	 * Precondition: v is in this heap. */
+	public int priority(int v) {
+		return prio[pos[v]];
+	}
+
+	/** Add handle v with priority p. <br>
+	 * Throw an IllegalArgumentException if v is already in this heap. */
+	@Override
+	public void add(int v, int p) {
+		if (pos[v] >= 0) throw new IllegalArgumentException("add: handle already in heap");
+		heap[size]= v;
+		prio[size]= p;
+		pos[v]= size;
+		size++ ;
+		bubbleUp(size - 1);
+	}
+
+	/** If v is not in this heap, add it with priority p and return true. <br>
+	 * If v is in this heap with a priority greater than p, lower it to p and return true. <br>
+	 * Otherwise, leave the heap unchanged and return false. */
+	@Override
+	public boolean insertOrDecrease(int v, int p) {
+		int k= pos[v];
+		if (k < 0) {
+			heap[size]= v;
+			prio[size]= p;
+			pos[v]= size;
+			size++ ;
+			bubbleUp(size - 1);
+			return true;
+		}
+		if (p >= prio[k]) return false;
+		prio[k]= p;
+		bubbleUp(k);
+		return true;
+	}
+
+	/** Change the priority of handle v to p. <br>
+	 * Throw an IllegalArgumentException if v is not in this heap. */
+	@Override
+	public void changePriority(int v, int p) {
+		int k= pos[v];
+		if (k < 0) throw new IllegalArgumentException("changePriority: handle not in heap");
+		int old= prio[k];
+		prio[k]= p;
+		if (p < old) {
+			bubbleUp(k);
+		} else {
+			bubbleDown(k);
+		}
+	}
+
+	/** Return the handle with lowest priority without removing it. <br>
+	 * Throw a NoSuchElementException if this heap is empty. */
+	@Override
+	public int peek() {
+		if (size == 0) throw new NoSuchElementException();
+		return heap[0];
+	}
+
+	/** Return the lowest priority in this heap. <br>
+	 * Throw a NoSuchElementException if this heap is empty. */
+	public int peekPriority() {
+		if (size == 0) throw new NoSuchElementException();
+		return prio[0];
+	}
+
+	/** Remove and return the handle with lowest priority. <br>
+	 * Throw a NoSuchElementException if this heap is empty. */
+	@Override
+	public int poll() {
+		if (size == 0) throw new NoSuchElementException();
+		int v= heap[0];
+		pos[v]= -1;
+		size-- ;
+		if (size > 0) {
+			heap[0]= heap[size];
+			prio[0]= prio[size];
+			pos[heap[0]]= 0;
+			bubbleDown(0);
+		}
+		return v;
+	}
+
+	/** Remove handle v from this heap if it is in it; return true iff it was. */
+	public boolean remove(int v) {
+		int k= pos[v];
+		if (k < 0) return false;
+		pos[v]= -1;
+		size-- ;
+		if (k < size) {
+			// fill the hole with the last leaf, which may belong above or below it
+			heap[k]= heap[size];
+			prio[k]= prio[size];
+			pos[heap[k]]= k;
+			if (k > 0 && prio[(k - 1) >>> 1] > prio[k]) {
+				bubbleUp(k);
+			} else {
+				bubbleDown(k);
+			}
+		}
+		return true;
+	}
+
+	/** Remove every handle from this heap. Takes time proportional to size(), <br>
+	 * so a heap can be reused for many searches over the same handles. */
+	@Override
+	public void clear() {
+		for (int k= 0; k < size; k++ ) {
+			pos[heap[k]]= -1;
+		}
+		size= 0;
+	}
+
+	/** Return this heap's handles and priorities in the format given in PQueue. */
+	@Override
+	public String toString() {
+		StringBuilder sb= new StringBuilder("[");
+		for (int k= 0; k < size; k++ ) {
+			if (k > 0) sb.append(", ");
+			sb.append(heap[k]).append(':').append(prio[k]);
+		}
+		return sb.append(']').toString();
+	}
+
+	/** Move the handle at heap[k] up to its right place. <br>
+	 * Precondition: the class invariant holds except that prio[k] may be <br>
+	 * less than its parent's priority. */
+	private void bubbleUp(int k) {
+		int v= heap[k];
+		int p= prio[k];
+		while (k > 0) {
+			int parent= (k - 1) >>> 1;
+			if (prio[parent] <= p) break;
+			heap[k]= heap[parent];
+			prio[k]= prio[parent];
+			pos[heap[k]]= k;
+			k= parent;
+		}
+		heap[k]= v;
+		prio[k]= p;
+		pos[v]= k;
+	}
+
+	/** Move the handle at heap[k] down to its right place. <br>
+	 * Precondition: the class invariant holds except that prio[k] may be <br>
+	 * greater than a child's priority. */
+	private void bubbleDown(int k) {
+		int v= heap[k];
+		int p= prio[k];
+		int half= size >>> 1; // heap[k] has a child iff k < half
+		while (k < half) {
+			int c= 2 * k + 1;
+			if (c + 1 < size && prio[c + 1] < prio[c]) c++ ;
+			if (p <= prio[c]) break;
+			heap[k]= heap[c];
+			prio[k]= prio[c];
+			pos[heap[k]]= k;
+			k= c;
+		}
+		heap[k]= v;
+		prio[k]= p;
+		pos[v]= k;
+	}
+}
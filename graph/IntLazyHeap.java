@@ -0,0 +1,170 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An instance is a priority queue of distinct int handles in 0..n-1 with int priorities, <br>
+ * implemented as a binary heap without decrease-key ("lazy deletion"). Lowering a <br>
+ * priority pushes a new entry; the old entry becomes stale and is thrown away when it <br>
+ * reaches the top. Each entry is one long packing (priority, handle), so the heap is a <br>
+ * single array and sifting moves one word per level. The array grows when needed.
+ *
+ * The price is a heap of up to (number of edges) entries instead of n, which suits <br>
+ * sparse graphs such as sewers, where few decreases happen. */
+public final class IntLazyHeap implements PQueue {
+
+	/** Class Invariant: <br>
+	 * 1. entries[0..count-1] is a binary min-heap of packed (priority, handle) longs <br>
+	 * (see pack). Some entries may be stale. <br>
+	 * 2. best[v] is the priority of handle v if v is in the queue; in[v] is true iff v is <br>
+	 * in the queue. An entry (p, v) is live iff in[v] and p == best[v]. <br>
+	 * 3. Every handle in the queue has a live entry; size is the number of such handles. */
+	private long[] entries;
+	private int count;
+	private final int[] best;
+	private final boolean[] in;
+	private int size;
+
+	/** Constructor: an empty queue for handles 0..n-1. */
+	public IntLazyHeap(int n) {
+		entries= new long[Math.max(16, n)];
+		best= new int[n];
+		in= new boolean[n];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(int e) {
+		return in[e];
+	}
+
+	@Override
+	public void add(int e, int p) {
+		if (in[e]) throw new IllegalArgumentException("add: handle already in queue");
+		in[e]= true;
+		size++ ;
+		push(e, p);
+	}
+
+	@Override
+	public boolean insertOrDecrease(int e, int p) {
+		if (in[e]) {
+			if (p >= best[e]) return false;
+		} else {
+			in[e]= true;
+			size++ ;
+		}
+		push(e, p);
+		return true;
+	}
+
+	@Override
+	public void changePriority(int e, int p) {
+		if (!in[e]) throw new IllegalArgumentException("changePriority: handle not in queue");
+		push(e, p);
+	}
+
+	@Override
+	public int peek() {
+		if (size == 0) throw new NoSuchElementException();
+		dropStale();
+		return handle(entries[0]);
+	}
+
+	@Override
+	public int poll() {
+		if (size == 0) throw new NoSuchElementException();
+		dropStale();
+		int e= handle(entries[0]);
+		removeTop();
+		in[e]= false;
+		size-- ;
+		return e;
+	}
+
+	@Override
+	public void clear() {
+		for (int k= 0; k < count; k++ ) {
+			in[handle(entries[k])]= false;
+		}
+		count= 0;
+		size= 0;
+	}
+
+	/** Return the queue's live handles and priorities in the format given in PQueue. */
+	@Override
+	public String toString() {
+		StringBuilder sb= new StringBuilder("[");
+		boolean first= true;
+		for (int k= 0; k < count; k++ ) {
+			int e= handle(entries[k]);
+			int p= (int) (entries[k] >> 32);
+			if (!in[e] || best[e] != p) continue;
+			if (!first) sb.append(", ");
+			sb.append(e).append(':').append(p);
+			first= false;
+		}
+		return sb.append(']').toString();
+	}
+
+	/** Return priority p and handle e packed into one long. Packed longs compare <br>
+	 * like (p, e) pairs, so the heap orders by priority, then by handle. */
+	private static long pack(int e, int p) {
+		return (long) p << 32 | e & 0xFFFFFFFFL;
+	}
+
+	/** Return the handle packed in entry x. */
+	private static int handle(long x) {
+		return (int) x;
+	}
+
+	/** Make p the priority of handle e and push an entry for it. */
+	private void push(int e, int p) {
+		best[e]= p;
+		if (count == entries.length) entries= Arrays.copyOf(entries, 2 * count);
+		long x= pack(e, p);
+		int k= count++ ;
+		while (k > 0) {
+			int parent= (k - 1) >>> 1;
+			if (entries[parent] <= x) break;
+			entries[k]= entries[parent];
+			k= parent;
+		}
+		entries[k]= x;
+	}
+
+	/** Remove stale entries from the top until the top entry is live. <br>
+	 * Precondition: size > 0, so a live entry exists. */
+	private void dropStale() {
+		while (true) {
+			long x= entries[0];
+			int e= handle(x);
+			if (in[e] && best[e] == (int) (x >> 32)) return;
+			removeTop();
+		}
+	}
+
+	/** Remove the top entry of the heap. */
+	private void removeTop() {
+		long x= entries[--count];
+		int k= 0;
+		int half= count >>> 1;
+		while (k < half) {
+			int c= 2 * k + 1;
+			if (c + 1 < count && entries[c + 1] < entries[c]) c++ ;
+			if (x <= entries[c]) break;
+			entries[k]= entries[c];
+			k= c;
+		}
+		if (count > 0) entries[k]= x;
+	}
+}
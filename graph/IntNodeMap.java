@@ -0,0 +1,73 @@
+package graph;
+
+import java.util.Arrays;
+
+/** An instance maps each node of a CsrGraph to an int, stored in an array indexed <br>
+ * by the nodes' dense indices. A node that has not been given a value maps to the <br>
+ * absent value chosen at construction. Nothing is boxed or hashed on access. */
+public final class IntNodeMap {
+
+	/** values[i] is the value of the node with index i. */
+	private final int[] values;
+
+	/** The value of a node that has not been given one. */
+	private final int absent;
+
+	/** Constructor: a map over the nodes of g in which every node maps to absent. */
+	public IntNodeMap(CsrGraph g, int absent) {
+		this(g.size(), absent);
+	}
+
+	/** Constructor: a map over node indices 0..n-1 in which every index maps to absent. */
+	public IntNodeMap(int n, int absent) {
+		values= new int[n];
+		this.absent= absent;
+		if (absent != 0) Arrays.fill(values, absent);
+	}
+
+	/** Return the number of nodes this map covers. */
+	public int size() {
+		return values.length;
+	}
+
+	/** Return the value that stands for "no value". */
+	public int absent() {
+		return absent;
+	}
+
+	/** Return the value of the node with index i. */
+	public int get(int i) {
+		return values[i];
+	}
+
+	/** Return the value of node n. <br>
+	 * Precondition: n is a node of the graph this map was created for. */
+	public int get(Node n) {
+		return values[n.index()];
+	}
+
+	/** Return true iff the node with index i has a value other than absent(). */
+	public boolean containsKey(int i) {
+		return values[i] != absent;
+	}
+
+	/** Return true iff node n has a value other than absent(). */
+	public boolean containsKey(Node n) {
+		return values[n.index()] != absent;
+	}
+
+	/** Give the node with index i value v. */
+	public void put(int i, int v) {
+		values[i]= v;
+	}
+
+	/** Give node n value v. */
+	public void put(Node n, int v) {
+		values[n.index()]= v;
+	}
+
+	/** Make every node map to absent() again. */
+	public void clear() {
+		Arrays.fill(values, absent);
+	}
+}
@@ -0,0 +1,217 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An instance is a pairing heap of distinct int handles in 0..n-1 with int priorities. <br>
+ * The tree is kept in arrays indexed by handle (leftmost child, right sibling, and <br>
+ * left link), so nothing is allocated after construction. insertOrDecrease takes <br>
+ * constant time (it cuts a subtree and links it to the root); poll does the <br>
+ * standard two-pass pairing of the root's children. */
+public final class IntPairingHeap implements PQueue {
+
+	/** Class Invariant: <br>
+	 * 1. The handles in the heap form a tree rooted at root (-1 if the heap is empty) <br>
+	 * in which every handle's priority is at least its parent's. <br>
+	 * 2. child[v] is the leftmost child of v and sibling[v] the next child to its right <br>
+	 * (-1 if none). left[v] is the previous child if v is not leftmost, or else v's parent. <br>
+	 * 3. left[v] = NOT_IN for every handle v not in the heap; left[root] = -1. <br>
+	 * 4. prio[v] is the priority of every handle v in the heap. */
+	private static final int NOT_IN= -2;
+	private final int[] child;
+	private final int[] sibling;
+	private final int[] left;
+	private final int[] prio;
+	/** Scratch space for poll's pairing passes. */
+	private final int[] pairs;
+	private int root= -1;
+	private int size;
+
+	/** Constructor: an empty heap for handles 0..n-1. */
+	public IntPairingHeap(int n) {
+		child= new int[n];
+		sibling= new int[n];
+		left= new int[n];
+		Arrays.fill(left, NOT_IN);
+		prio= new int[n];
+		pairs= new int[n];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(int e) {
+		return left[e] != NOT_IN;
+	}
+
+	@Override
+	public void add(int e, int p) {
+		if (left[e] != NOT_IN) throw new IllegalArgumentException("add: handle already in heap");
+		insert(e, p);
+	}
+
+	@Override
+	public boolean insertOrDecrease(int e, int p) {
+		if (left[e] == NOT_IN) {
+			insert(e, p);
+			return true;
+		}
+		if (p >= prio[e]) return false;
+		decrease(e, p);
+		return true;
+	}
+
+	@Override
+	public void changePriority(int e, int p) {
+		if (left[e] == NOT_IN) {
+			throw new IllegalArgumentException("changePriority: handle not in heap");
+		}
+		if (p <= prio[e]) {
+			decrease(e, p);
+		} else {
+			// An increase may break the order below e: take e out, then put it back.
+			remove(e);
+			insert(e, p);
+		}
+	}
+
+	@Override
+	public int peek() {
+		if (size == 0) throw new NoSuchElementException();
+		return root;
+	}
+
+	@Override
+	public int poll() {
+		if (size == 0) throw new NoSuchElementException();
+		int e= root;
+		remove(e);
+		return e;
+	}
+
+	@Override
+	public void clear() {
+		while (size > 0) {
+			poll();
+		}
+	}
+
+	/** Return this heap's handles and priorities in the format given in PQueue, <br>
+	 * in preorder of the tree. */
+	@Override
+	public String toString() {
+		StringBuilder sb= new StringBuilder("[");
+		int n= 0;
+		if (root != -1) pairs[n++ ]= root;
+		boolean first= true;
+		while (n > 0) {
+			int v= pairs[--n];
+			if (!first) sb.append(", ");
+			sb.append(v).append(':').append(prio[v]);
+			first= false;
+			for (int c= child[v]; c != -1; c= sibling[c]) {
+				pairs[n++ ]= c;
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/** Add handle e, not in the heap, with priority p. */
+	private void insert(int e, int p) {
+		prio[e]= p;
+		child[e]= -1;
+		sibling[e]= -1;
+		left[e]= -1;
+		root= root == -1 ? e : link(root, e);
+		size++ ;
+	}
+
+	/** Lower the priority of handle e, which is in the heap, to p. */
+	private void decrease(int e, int p) {
+		prio[e]= p;
+		if (e == root) return;
+		cut(e);
+		root= link(root, e);
+	}
+
+	/** Remove handle e, which is in the heap. */
+	private void remove(int e) {
+		if (e != root) {
+			cut(e);
+			int sub= mergePairs(child[e]);
+			if (sub != -1) root= link(root, sub);
+		} else {
+			root= mergePairs(child[e]);
+			if (root != -1) left[root]= -1;
+		}
+		left[e]= NOT_IN;
+		size-- ;
+	}
+
+	/** Detach the subtree rooted at e (which is not the root) from its parent or left sibling. */
+	private void cut(int e) {
+		int l= left[e];
+		int s= sibling[e];
+		if (child[l] == e) {
+			child[l]= s;
+		} else {
+			sibling[l]= s;
+		}
+		if (s != -1) left[s]= l;
+		sibling[e]= -1;
+		left[e]= -1;
+	}
+
+	/** Link the trees rooted at a and b (each with no siblings) and return the new root. */
+	private int link(int a, int b) {
+		if (prio[b] < prio[a]) {
+			int t= a;
+			a= b;
+			b= t;
+		}
+		// b becomes the leftmost child of a
+		int c= child[a];
+		sibling[b]= c;
+		if (c != -1) left[c]= b;
+		left[b]= a;
+		child[a]= b;
+		sibling[a]= -1;
+		left[a]= -1;
+		return a;
+	}
+
+	/** Merge the sibling list starting at first into one tree, by the two-pass <br>
+	 * method, and return its root (-1 if first is -1). */
+	private int mergePairs(int first) {
+		int n= 0;
+		// first pass: link adjacent pairs, left to right
+		for (int a= first; a != -1;) {
+			int b= sibling[a];
+			if (b == -1) {
+				sibling[a]= -1;
+				pairs[n++ ]= a;
+				break;
+			}
+			int next= sibling[b];
+			sibling[a]= -1;
+			sibling[b]= -1;
+			pairs[n++ ]= link(a, b);
+			a= next;
+		}
+		if (n == 0) return -1;
+		// second pass: link the results right to left
+		int r= pairs[n - 1];
+		for (int i= n - 2; i >= 0; i-- ) {
+			r= link(pairs[i], r);
+		}
+		return r;
+	}
+}
@@ -2,7 +2,6 @@ package graph;
 
 import java.util.Collections;
 import java.util.LinkedHashSet;
-import java.util.Objects;
 import java.util.Set;
 
 /** An instance is a node of the graph */
@@ -23,6 +22,12 @@ public class Node {
 	/** Extra state that belongs to this node */
 	private final Tile tile;
 
+	/** The CSR view of the sewer graph this Node belongs to (null for a wall) */
+	private CsrGraph csr;
+
+	/** The dense index of this Node in csr (-1 for a wall) */
+	private int index= -1;
+
 	/** Constructor: a Node for tile t using t's row */
 	/* package */ Node(Tile t, int numCols) {
 		this(t.row() * numCols + t.column(), t);
@@ -46,6 +51,12 @@ public class Node {
 		neighbors.add(e.getOther(this));
 	}
 
+	/** Make this Node the node with index i of CSR view g. */
+	/* package */ void setIndex(CsrGraph g, int i) {
+		csr= g;
+		index= i;
+	}
+
 	/** Return the unique Identifier of this Node. */
 	public long getId() {
 		return id;
@@ -70,6 +81,17 @@ public class Node {
 		return unmodifiableNeighbors;
 	}
 
+	/** Return the dense index of this Node in csr(), or -1 if this Node is a wall. */
+	public int index() {
+		return index;
+	}
+
+	/** Return the CSR view of the sewer graph this Node belongs to, <br>
+	 * or null if this Node is a wall. */
+	public CsrGraph csr() {
+		return csr;
+	}
+
 	/** Return the Tile corresponding to this Node. */
 	public Tile getTile() {
 		return tile;
@@ -85,6 +107,6 @@ public class Node {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id);
+		return Long.hashCode(id);
 	}
 }
@@ -0,0 +1,75 @@
+package graph;
+
+import java.util.Arrays;
+
+/** An instance is a set of nodes of a CsrGraph, stored as one bit per dense node index. */
+public final class NodeBitSet {
+
+	/** Bit i%64 of words[i/64] is set iff the node with index i is in this set. */
+	private final long[] words;
+
+	/** The number of nodes this set covers. */
+	private final int n;
+
+	/** Constructor: an empty set over the nodes of g. */
+	public NodeBitSet(CsrGraph g) {
+		this(g.size());
+	}
+
+	/** Constructor: an empty set over node indices 0..n-1. */
+	public NodeBitSet(int n) {
+		this.n= n;
+		words= new long[(n + 63) >>> 6];
+	}
+
+	/** Return the number of nodes this set covers (not the number in it). */
+	public int universe() {
+		return n;
+	}
+
+	/** Return true iff the node with index i is in this set. */
+	public boolean contains(int i) {
+		return (words[i >>> 6] & 1L << i) != 0;
+	}
+
+	/** Return true iff node n is in this set. */
+	public boolean contains(Node nd) {
+		return contains(nd.index());
+	}
+
+	/** Add the node with index i to this set. Return true iff it was not already in it. */
+	public boolean add(int i) {
+		long w= words[i >>> 6];
+		words[i >>> 6]= w | 1L << i;
+		return (w & 1L << i) == 0;
+	}
+
+	/** Add node nd to this set. Return true iff it was not already in it. */
+	public boolean add(Node nd) {
+		return add(nd.index());
+	}
+
+	/** Remove the node with index i from this set. */
+	public void remove(int i) {
+		words[i >>> 6]&= ~(1L << i);
+	}
+
+	/** Remove node nd from this set. */
+	public void remove(Node nd) {
+		remove(nd.index());
+	}
+
+	/** Return the number of nodes in this set. */
+	public int cardinality() {
+		int c= 0;
+		for (long w : words) {
+			c+= Long.bitCount(w);
+		}
+		return c;
+	}
+
+	/** Remove all nodes from this set. */
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+}
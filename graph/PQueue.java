@@ -1,10 +1,12 @@
 package graph;
 
-/** An implementation implements a priority queue whose elements are of type E. <br>
+/** An implementation implements a min priority queue whose elements are int handles <br>
+ * in 0..n-1 (in practice, dense node indices of a CsrGraph) with int priorities. <br>
  * Below, N is used as the number of elements currently in the priority queue. <br>
  * Duplicate elements are not allowed. <br>
- * The priorities are double values. */
-interface PQueue<E> {
+ * Shortest-path code is written against this interface so that the queue can be chosen <br>
+ * to fit the graph (see QueueKind). */
+public interface PQueue {
 
 	/** Return a string that represents this priority queue, in the format:<br>
 	 * [item0:priority0, item1:priority1, ..., item(N-1):priority(N-1)]<br>
@@ -19,20 +21,31 @@ interface PQueue<E> {
 	/** Return true iff the priority queue is empty. */
 	boolean isEmpty();
 
+	/** Return true iff e is in the priority queue. */
+	boolean contains(int e);
+
 	/** Add e with priority p to the priority queue.<br>
 	 * Throw an illegalArgumentException if e is already in the queue. */
-	void add(E e, double priority) throws IllegalArgumentException;
+	void add(int e, int p) throws IllegalArgumentException;
+
+	/** If e is not in the queue, add it with priority p and return true. <br>
+	 * If e is in the queue with a priority greater than p, lower it to p and return true.<br>
+	 * Otherwise, leave the queue unchanged and return false. */
+	boolean insertOrDecrease(int e, int p);
 
 	/** Return the element of the priority queue with lowest priority, <br>
 	 * without changing the priority queue.<br>
-	 * Precondition: the priority queue is not empty. */
-	E peek();
+	 * Throw a NoSuchElementException if the priority queue is empty. */
+	int peek();
 
 	/** Remove and return the element of the priority queue with lowest priority.<br>
-	 * Precondition: the priority queue is not empty. */
-	E poll();
+	 * Throw a NoSuchElementException if the priority queue is empty. */
+	int poll();
 
 	/** Change the priority of element e to p.<br>
-	 * Precondition: e is in the priority queue */
-	void changePriority(E e, double p);
+	 * Throw an IllegalArgumentException if e is not in the priority queue. */
+	void changePriority(int e, int p);
+
+	/** Remove all elements from the priority queue. */
+	void clear();
 }
@@ -0,0 +1,156 @@
+package graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/** An instance is an immutable path in a CsrGraph: a sequence of node indices in <br>
+ * which each node is joined to the next by an edge. It is a List<Node>, so it can go <br>
+ * wherever paths used to be LinkedLists, but it is backed by an int array and keeps <br>
+ * prefix sums, so its length, its coins, and those of any sub-path take constant time.
+ *
+ * The coins are those on the path's tiles when it was built; picking coins up <br>
+ * afterwards does not change them. */
+public final class Path extends AbstractList<Node> implements RandomAccess {
+
+	/** The graph the path is in. */
+	private final CsrGraph g;
+
+	/** The path is nodes[from..to-1] (indices in g). The arrays may be shared with <br>
+	 * the path this one is a sub-path of. */
+	private final int[] nodes;
+	private final int from;
+	private final int to;
+
+	/** dist[k] is the length of the path from nodes[0] to nodes[k]. */
+	private final int[] dist;
+
+	/** coins[k] is the value of the coins on nodes[0..k-1]. */
+	private final int[] coins;
+
+	/** The hash code, computed on first use (0 if not yet computed). */
+	private int hash;
+
+	/** Constructor: the path in g through the nodes with indices nodes, in order. <br>
+	 * Throw an IllegalArgumentException if two consecutive nodes are not joined by an edge. */
+	public Path(CsrGraph g, int[] nodes) {
+		this.g= g;
+		this.nodes= nodes;
+		from= 0;
+		to= nodes.length;
+		dist= new int[nodes.length];
+		coins= new int[nodes.length + 1];
+		for (int k= 0; k < nodes.length; k++ ) {
+			if (k > 0) dist[k]= dist[k - 1] + edgeLength(g, nodes[k - 1], nodes[k]);
+			coins[k + 1]= coins[k] + g.node(nodes[k]).getTile().coins();
+		}
+	}
+
+	/** Constructor: the sub-path nodes from..to-1 of p. */
+	private Path(Path p, int from, int to) {
+		g= p.g;
+		nodes= p.nodes;
+		dist= p.dist;
+		coins= p.coins;
+		this.from= from;
+		this.to= to;
+	}
+
+	/** Return the empty path in g. */
+	public static Path empty(CsrGraph g) {
+		return new Path(g, new int[0]);
+	}
+
+	/** Return the length of the edge from node v to node w of g. <br>
+	 * Throw an IllegalArgumentException if there is none. */
+	private static int edgeLength(CsrGraph g, int v, int w) {
+		for (int e= g.firstExit(v); e < g.endExit(v); e++ ) {
+			if (g.target(e) == w) return g.weight(e);
+		}
+		throw new IllegalArgumentException("Path: no edge from node " + v + " to node " + w);
+	}
+
+	/** Return the graph this path is in. */
+	public CsrGraph graph() {
+		return g;
+	}
+
+	/** Return the number of nodes on this path. */
+	@Override
+	public int size() {
+		return to - from;
+	}
+
+	/** Return node i of this path (node 0 is the first). */
+	@Override
+	public Node get(int i) {
+		return g.node(index(i));
+	}
+
+	/** Return the index in the graph of node i of this path. */
+	public int index(int i) {
+		if (i < 0 || i >= to - from) throw new IndexOutOfBoundsException("index " + i);
+		return nodes[from + i];
+	}
+
+	/** Return the sum of the lengths of this path's edges (0 if it has fewer than 2 nodes). */
+	public int length() {
+		return to == from ? 0 : dist[to - 1] - dist[from];
+	}
+
+	/** Return the value of the coins on this path's nodes when it was built. */
+	public int coins() {
+		return coins[to] - coins[from];
+	}
+
+	/** Return the length of the part of this path from node i to node j. <br>
+	 * Precondition: 0 <= i <= j < size(). */
+	public int length(int i, int j) {
+		return dist[from + j] - dist[from + i];
+	}
+
+	/** Return the value of the coins on nodes i..j-1 of this path when it was built. <br>
+	 * Precondition: 0 <= i <= j <= size(). */
+	public int coins(int i, int j) {
+		return coins[from + j] - coins[from + i];
+	}
+
+	/** Return the sub-path of nodes i..j-1 of this path. It shares this path's arrays. */
+	public Path subPath(int i, int j) {
+		if (i < 0 || j > to - from || i > j) {
+			throw new IndexOutOfBoundsException("subPath(" + i + ", " + j + ")");
+		}
+		return new Path(this, from + i, from + j);
+	}
+
+	@Override
+	public Path subList(int i, int j) {
+		return subPath(i, j);
+	}
+
+	/** Return the indices of this path's nodes, in order, in a new array. */
+	public int[] toIndexArray() {
+		return Arrays.copyOfRange(nodes, from, to);
+	}
+
+	/** Return true iff ob is a list of the same nodes in the same order. */
+	@Override
+	public boolean equals(Object ob) {
+		if (ob == this) return true;
+		if (!(ob instanceof Path)) return super.equals(ob);
+		Path p= (Path) ob;
+		if (p.g != g) return super.equals(ob);
+		return Arrays.equals(nodes, from, to, p.nodes, p.from, p.to);
+	}
+
+	/** Return the hash code List specifies; it is computed once. */
+	@Override
+	public int hashCode() {
+		int h= hash;
+		if (h == 0) {
+			h= super.hashCode();
+			hash= h;
+		}
+		return h;
+	}
+}
@@ -0,0 +1,57 @@
+package graph;
+
+/** The kinds of PQueue that a shortest-path search over a CsrGraph can use. */
+public enum QueueKind {
+	/** A binary heap of node indices (IntIndexedMinHeap). Works for any edge lengths. */
+	BINARY_HEAP {
+		@Override
+		public PQueue create(CsrGraph g, int maxStep) {
+			return new IntIndexedMinHeap(g.size());
+		}
+	},
+
+	/** A 4-ary heap of node indices (IntDaryHeap). Works for any edge lengths. */
+	QUATERNARY_HEAP {
+		@Override
+		public PQueue create(CsrGraph g, int maxStep) {
+			return new IntDaryHeap(g.size(), 4);
+		}
+	},
+
+	/** A pairing heap of node indices (IntPairingHeap). Works for any edge lengths. */
+	PAIRING_HEAP {
+		@Override
+		public PQueue create(CsrGraph g, int maxStep) {
+			return new IntPairingHeap(g.size());
+		}
+	},
+
+	/** A binary heap without decrease-key (IntLazyHeap). Works for any edge lengths. */
+	LAZY_HEAP {
+		@Override
+		public PQueue create(CsrGraph g, int maxStep) {
+			return new IntLazyHeap(g.size());
+		}
+	},
+
+	/** A bucket queue (IntBucketQueue, Dial's algorithm) with maxStep+1 buckets. <br>
+	 * If g has an edge longer than Sewers.MAX_EDGE_WEIGHT, too many buckets would <br>
+	 * have to be scanned, so this falls back to a binary heap. */
+	BUCKETS {
+		@Override
+		public PQueue create(CsrGraph g, int maxStep) {
+			if (g.maxWeight() > Sewers.MAX_EDGE_WEIGHT) return BINARY_HEAP.create(g, maxStep);
+			return new IntBucketQueue(g.size(), maxStep);
+		}
+	};
+
+	/** Return a new, empty queue of this kind for the node indices of g, for a <br>
+	 * search in which a relaxation raises a priority above the last one polled <br>
+	 * by at most maxStep. */
+	public abstract PQueue create(CsrGraph g, int maxStep);
+
+	/** Return a new, empty queue of this kind for a Dijkstra over the node indices of g. */
+	public PQueue create(CsrGraph g) {
+		return create(g, g.maxWeight());
+	}
+}
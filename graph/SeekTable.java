@@ -0,0 +1,131 @@
+package graph;
+
+/** An instance holds, in flat arrays, what the seek phase reports about a Sewers: each <br>
+ * node's id and grid (Manhattan) distance to the ring, and the same for its neighbors, <br>
+ * in the order of the node's exits in the CSR view. It also maps ids back to indices. <br>
+ * Node indices are those of the sewer's CsrGraph.
+ *
+ * The neighbors of the node with index i are the exit slots csr.firstExit(i).. <br>
+ * csr.endExit(i)-1, so copying their ids and distances into a caller's buffers is two <br>
+ * array copies: nothing is allocated and no Tile is looked at per step. */
+public final class SeekTable {
+
+	/** The CSR view of the sewer. */
+	private final CsrGraph csr;
+
+	/** ids[i] is the id of the node with index i, ringDist[i] its distance to the ring. */
+	private final long[] ids;
+	private final int[] ringDist;
+
+	/** exitIds[e] and exitDist[e] are the id and distance to the ring of the node that <br>
+	 * exit slot e leads to. */
+	private final long[] exitIds;
+	private final int[] exitDist;
+
+	/** If every id is in 0..byId.length-1, byId[id] is 1 + the index of the node with <br>
+	 * that id (0 if there is none), and keys is null. Otherwise byId is null and the ids <br>
+	 * are in an open-addressing table: slot k holds id keys[k] and index vals[k] - 1, <br>
+	 * or is empty if vals[k] is 0. */
+	private final int[] byId;
+	private final long[] keys;
+	private final int[] vals;
+
+	/** Constructor: the table of sewers. */
+	/* package */ SeekTable(Sewers sewers) {
+		csr= sewers.csr();
+		int n= csr.size();
+		Tile ring= sewers.ring().getTile();
+		ids= new long[n];
+		ringDist= new int[n];
+		boolean dense= true;
+		long limit= (long) sewers.rowCount() * sewers.columnCount();
+		for (int i= 0; i < n; i++ ) {
+			ids[i]= csr.node(i).getId();
+			ringDist[i]= Math.abs(csr.row(i) - ring.row()) + Math.abs(csr.column(i) - ring.column());
+			if (ids[i] < 0 || ids[i] >= limit) dense= false;
+		}
+
+		exitIds= new long[csr.edgeCount()];
+		exitDist= new int[csr.edgeCount()];
+		for (int e= 0; e < exitIds.length; e++ ) {
+			exitIds[e]= ids[csr.target(e)];
+			exitDist[e]= ringDist[csr.target(e)];
+		}
+
+		if (dense) {
+			byId= new int[(int) limit];
+			for (int i= 0; i < n; i++ ) {
+				byId[(int) ids[i]]= i + 1;
+			}
+			keys= null;
+			vals= null;
+		} else {
+			byId= null;
+			int cap= Integer.highestOneBit(Math.max(2, 2 * n - 1)) << 1;
+			keys= new long[cap];
+			vals= new int[cap];
+			for (int i= 0; i < n; i++ ) {
+				int k= slot(ids[i]);
+				while (vals[k] != 0) {
+					k= k + 1 & cap - 1;
+				}
+				keys[k]= ids[i];
+				vals[k]= i + 1;
+			}
+		}
+	}
+
+	/** Return the CSR view whose indices this table uses. */
+	public CsrGraph csr() {
+		return csr;
+	}
+
+	/** Return the index of the node with id id, or -1 if there is none. */
+	public int indexOf(long id) {
+		if (byId != null) return id >= 0 && id < byId.length ? byId[(int) id] - 1 : -1;
+		for (int k= slot(id); vals[k] != 0; k= k + 1 & keys.length - 1) {
+			if (keys[k] == id) return vals[k] - 1;
+		}
+		return -1;
+	}
+
+	/** Return the id of the node with index i. <br>
+	 * Precondition: 0 <= i < csr().size(). */
+	public long id(int i) {
+		return ids[i];
+	}
+
+	/** Return the grid distance from the node with index i to the ring. <br>
+	 * Precondition: 0 <= i < csr().size(). */
+	public int distanceToRing(int i) {
+		return ringDist[i];
+	}
+
+	/** Return true iff the node with index j is a neighbor of the node with index i. <br>
+	 * Precondition: 0 <= i < csr().size(). */
+	public boolean adjacent(int i, int j) {
+		for (int e= csr.firstExit(i); e < csr.endExit(i); e++ ) {
+			if (csr.target(e) == j) return true;
+		}
+		return false;
+	}
+
+	/** Put the ids and distances to the ring of the neighbors of the node with index i <br>
+	 * into ids and dists, from position 0, as many as fit in the shorter of the two, <br>
+	 * and return the number of neighbors. <br>
+	 * Precondition: 0 <= i < csr().size(). */
+	public int neighbors(int i, long[] ids, int[] dists) {
+		int first= csr.firstExit(i);
+		int deg= csr.endExit(i) - first;
+		int m= Math.min(deg, Math.min(ids.length, dists.length));
+		System.arraycopy(exitIds, first, ids, 0, m);
+		System.arraycopy(exitDist, first, dists, 0, m);
+		return deg;
+	}
+
+	/** Return the slot of the open-addressing table where the search for id starts. */
+	private int slot(long id) {
+		long x= id * 0x9E3779B97F4A7C15L;
+		return (int) (x ^ x >>> 32) & keys.length - 1;
+	}
+}
@@ -2,6 +2,7 @@ package graph;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -83,6 +84,17 @@ public class Sewers {
 
 	private final Node[][] tiles;
 
+	/** The CSR view of graph, built once all edges are in place. */
+	private final CsrGraph csr;
+
+	/** The table of what the seek phase reports about this sewer, built on first use. */
+	private volatile SeekTable seekTable;
+
+	/** When all edges have the same length, ringHops[i] is the number of edges on a <br>
+	 * shortest path from the node with index i to the ring (-1 if there is none). <br>
+	 * Built on first use. */
+	private volatile int[] ringHops;
+
 	/** Return a new random sewer system with r rows, c columns, and no coins,<br>
 	 * all edges have weight 1, and there is a ring a reasonable distance from the exit.<br>
 	 * rand is the source of randomness for the sewer-system generation. */
@@ -162,6 +174,7 @@ public class Sewers {
 			}
 		}
 		createEdges(tiles, edgeWeightGenerator);
+		csr= new CsrGraph(graph);
 	}
 
 	/** Constructor; a graph constructed from givenGraph and tiles givenTiles, <br>
@@ -180,6 +193,7 @@ public class Sewers {
 		entrance= graph.stream().filter((n) -> n.getTile().type() == Tile.TileType.ENTRANCE)
 			.findAny().get();
 		ring= trgt;
+		csr= new CsrGraph(graph);
 	}
 
 	/** Given tiles without edges and a supplier to return edge weights, add <br>
@@ -321,6 +335,27 @@ public class Sewers {
 		return graph;
 	}
 
+	/** Return the immutable CSR view of the graph. All path queries should walk this view. */
+	public CsrGraph csr() {
+		return csr;
+	}
+
+	/** Return the table of node ids, neighbor ids, and grid distances to the ring of <br>
+	 * this sewer system, for the seek phase. */
+	public SeekTable seekTable() {
+		SeekTable t= seekTable;
+		if (t == null) {
+			synchronized (this) {
+				t= seekTable;
+				if (t == null) {
+					t= new SeekTable(this);
+					seekTable= t;
+				}
+			}
+		}
+		return t;
+	}
+
 	/** Return the node corresponding to the entrance to the sewer system. */
 	public Node entrance() {
 		return entrance;
@@ -343,38 +378,82 @@ public class Sewers {
 		return tiles[r][c];
 	}
 
-	/** Package-private implementation of Dijkstra's algorithm<br>
-	 * It returns the shortest distance from node start to ring node. <br>
+	/** Return the shortest distance from node start to ring node. <br>
+	 * If all edges have the same length (as in every seek sewer), this is a lookup in <br>
+	 * a field of distances to the ring, found by one breadth-first search the first <br>
+	 * time it is needed. Otherwise it is Dijkstra's algorithm, whose frontier set is a <br>
+	 * bucket queue, since sewer edges are short. <br>
 	 * Precondition: start must be a node of the graph. */
 	int minPathLengthToRing(Node start) {
+		if (csr.minWeight() != csr.maxWeight()) {
+			return minPathLengthToRing(start, QueueKind.BUCKETS);
+		}
+		int hops= ringHops()[start.index()];
+		if (hops < 0) throw new IllegalStateException("The ring is not reachable from start.");
+		return hops * csr.minWeight();
+	}
+
+	/** Return ringHops, computing it if need be by a breadth-first search from the ring <br>
+	 * over the reverse view. Precondition: all edges have the same length. */
+	private int[] ringHops() {
+		int[] hops= ringHops;
+		if (hops == null) {
+			synchronized (this) {
+				hops= ringHops;
+				if (hops == null) {
+					CsrGraph rev= csr.reverse();
+					hops= new int[rev.size()];
+					Arrays.fill(hops, -1);
+					int[] queue= new int[rev.size()];
+					int head= 0;
+					int tail= 0;
+					queue[tail++ ]= ring.index();
+					hops[ring.index()]= 0;
+					while (head < tail) {
+						int v= queue[head++ ];
+						for (int e= rev.firstExit(v); e < rev.endExit(v); e++ ) {
+							int w= rev.target(e);
+							if (hops[w] < 0) {
+								hops[w]= hops[v] + 1;
+								queue[tail++ ]= w;
+							}
+						}
+					}
+					ringHops= hops;
+				}
+			}
+		}
+		return hops;
+	}
+
+	/** Return the shortest distance from node start to ring node, using Dijkstra's <br>
+	 * algorithm with a frontier set of kind kind. <br>
+	 * Precondition: start must be a node of the graph. */
+	int minPathLengthToRing(Node start, QueueKind kind) {
 
-		/** The frontier set, as a min-heap. */
-		InternalMinHeap<Node> F= new InternalMinHeap<>();
-		F.add(start, 0);
+		/** The frontier set of node indices. */
+		PQueue F= kind.create(csr);
+		F.add(start.index(), 0);
+		int ringIndex= ring.index();
 
 		/** Contains an entry for each element of the settled and frontier sets.<br>
-		 * The keys are the Ids of nodes, the values are the corresponding <br>
+		 * The keys are the nodes, the values are the corresponding <br>
 		 * distances from node start to this node, using only settled nodes except for the last,
 		 * which is in the frontier set. */
-		Map<Long, Integer> SFmap= new HashMap<>();
-		SFmap.put(start.getId(), 0);
-
-		while (F.size() > 0) {
-			Node f= F.poll();
-			if (f.equals(ring)) { return SFmap.get(f.getId()); }
-
-			int fDist= SFmap.get(f.getId());
-			for (Edge e : f.getExits()) {
-				Node w= e.getOther(f);
-				Long wId= w.getId();
-				Integer wDist= SFmap.get(wId);
-				int wDistNew= fDist + e.length();
-				if (wDist == null) {
-					SFmap.put(wId, wDistNew);
-					F.add(w, wDistNew);
-				} else if (wDistNew < wDist) {
-					SFmap.put(wId, wDistNew);
-					F.changePriority(w, wDistNew);
+		IntNodeMap SFmap= new IntNodeMap(csr, Integer.MAX_VALUE);
+		SFmap.put(start, 0);
+
+		while (!F.isEmpty()) {
+			int fi= F.poll();
+			if (fi == ringIndex) { return SFmap.get(fi); }
+
+			int fDist= SFmap.get(fi);
+			for (int e= csr.firstExit(fi); e < csr.endExit(fi); e++ ) {
+				int wi= csr.target(e);
+				int wDistNew= fDist + csr.weight(e);
+				if (wDistNew < SFmap.get(wi)) {
+					SFmap.put(wi, wDistNew);
+					F.insertOrDecrease(wi, wDistNew);
 				}
 			}
 		}